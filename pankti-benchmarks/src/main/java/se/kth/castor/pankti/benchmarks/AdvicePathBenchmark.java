@@ -0,0 +1,64 @@
+package se.kth.castor.pankti.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.kth.castor.pankti.instrument.plugins.CapturedMethod;
+import se.kth.castor.pankti.instrument.plugins.Invocation;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work MethodAspect0 hands to CapturedMethod for one invocation in sync capture mode,
+ * from @OnBefore to @OnReturn, without the Glowroot transaction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdvicePathBenchmark {
+    // 0 disables deduplication, so that every invocation is captured
+    @Param({"0", "100000"})
+    public int maxDistinctStates;
+
+    private CapturedMethod capturedMethod;
+    private CapturedMethod notCapturedMethod;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        capturedMethod = CapturedMethods.newCapturedMethod(getClass(), "captured", Map.of(
+                "deduplicateStates", maxDistinctStates > 0,
+                "maxDistinctStatesPerMethod", maxDistinctStates));
+        // The sampler skips every invocation
+        notCapturedMethod = CapturedMethods.newCapturedMethod(getClass(), "notCaptured", Map.of(
+                "deduplicateStates", maxDistinctStates > 0,
+                "maxDistinctStatesPerMethod", maxDistinctStates,
+                "samplingPolicy", "probability",
+                "samplingProbability", 0.0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CapturedMethods.deleteObjectFiles(getClass(), "captured");
+        CapturedMethods.deleteObjectFiles(getClass(), "notCaptured");
+    }
+
+    @Benchmark
+    public Invocation notCaptured(CapturedObjects objects) {
+        return invoke(notCapturedMethod, "notCaptured", objects);
+    }
+
+    @Benchmark
+    public Invocation captured(CapturedObjects objects) {
+        return invoke(capturedMethod, "captured", objects);
+    }
+
+    private Invocation invoke(CapturedMethod method, String methodName, CapturedObjects objects) {
+        // Nothing is traced, so there is no thread context
+        Invocation invocation = method.onBefore(null, objects.receivingObject, objects.parameterObjects, methodName);
+        method.onReturn(objects.returnedObject, invocation);
+        return invocation;
+    }
+}
@@ -0,0 +1,37 @@
+package se.kth.castor.pankti.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.results.format.ResultFormatType;
+
+/**
+ * Runs the benchmarks matching a regular expression once for every thread count,
+ * e.g. java -jar target/benchmarks.jar AdvicePath 1,8,64
+ */
+public class BenchmarkRunner {
+    private static final int[] DEFAULT_THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*Benchmark";
+        int[] threadCounts = args.length > 1 ? parseThreadCounts(args[1]) : DEFAULT_THREAD_COUNTS;
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.CSV)
+                    .result("pankti-benchmarks-" + threads + "-threads.csv");
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static int[] parseThreadCounts(String threadCounts) {
+        String[] values = threadCounts.split(",");
+        int[] counts = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            counts[i] = Integer.parseInt(values[i].trim());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,52 @@
+package se.kth.castor.pankti.benchmarks;
+
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+import se.kth.castor.pankti.instrument.plugins.CaptureConfig;
+import se.kth.castor.pankti.instrument.plugins.CapturedMethod;
+import se.kth.castor.pankti.instrument.plugins.MethodTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The CapturedMethod MethodAspect0 hands invocations to, built outside of the Glowroot agent:
+ * with an explicit config and no tracing. As in the agent, object files are written to {@link AdviceTemplate#storageDir}.
+ */
+class CapturedMethods {
+    static {
+        // The registries shared by all methods read their settings when the first method is created
+        CaptureConfig.setInstance(CaptureConfig.of(Map.of("traceMode", "none")));
+    }
+
+    // The method is named after the benchmark, properties are those of META-INF/glowroot.plugin.json
+    static CapturedMethod newCapturedMethod(Class<?> benchmark, String methodName, Map<String, ?> properties)
+            throws IOException {
+        String tableLine = String.join("\t", "0", benchmark.getName(), methodName, "", "false",
+                "public," + benchmark.getName() + "," + methodName + ",[],java.lang.Object");
+        MethodTable methodTable = MethodTable.load(new ByteArrayInputStream(tableLine.getBytes(StandardCharsets.UTF_8)));
+        Map<String, Object> config = new HashMap<>(properties);
+        config.put("traceMode", "none");
+        return new CapturedMethod(0, methodTable, CaptureConfig.of(config));
+    }
+
+    static void deleteObjectFiles(Class<?> benchmark, String methodName) throws IOException {
+        String prefix = benchmark.getName() + "." + methodName + "-";
+        List<Path> objectFiles;
+        try (Stream<Path> paths = Files.list(Paths.get(AdviceTemplate.storageDir))) {
+            objectFiles = paths.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .collect(Collectors.toList());
+        }
+        for (Path objectFile : objectFiles) {
+            Files.delete(objectFile);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package se.kth.castor.pankti.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receiving objects and parameters of the kinds pankti captures: a small POJO,
+ * a deep object graph, and large collections.
+ */
+@State(Scope.Benchmark)
+public class CapturedObjects {
+    @Param({"small", "deep", "collection"})
+    public String graph;
+
+    public Object receivingObject;
+    public Object[] parameterObjects;
+    public Object returnedObject;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (graph) {
+            case "deep":
+                receivingObject = Node.chain(200);
+                break;
+            case "collection":
+                List<Account> accounts = new ArrayList<>();
+                Map<String, Account> accountsById = new HashMap<>();
+                for (int i = 0; i < 10000; i++) {
+                    Account account = new Account("account-" + i, i * 10L);
+                    accounts.add(account);
+                    accountsById.put(account.id, account);
+                }
+                receivingObject = new Ledger(accounts, accountsById);
+                break;
+            default:
+                receivingObject = new Account("account", 100L);
+        }
+        parameterObjects = new Object[]{42, "reference", new Account("other", 5L)};
+        returnedObject = Boolean.TRUE;
+    }
+
+    public static class Account {
+        final String id;
+        long balance;
+        final int[] history = {1, 2, 3};
+        boolean frozen;
+
+        Account(String id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+
+    public static class Node {
+        final int value;
+        final Node next;
+        final String label;
+
+        Node(int value, Node next) {
+            this.value = value;
+            this.next = next;
+            this.label = "node-" + value;
+        }
+
+        static Node chain(int length) {
+            Node node = null;
+            for (int i = 0; i < length; i++) {
+                node = new Node(i, node);
+            }
+            return node;
+        }
+    }
+
+    public static class Ledger {
+        final List<Account> accounts;
+        final Map<String, Account> accountsById;
+
+        Ledger(List<Account> accounts, Map<String, Account> accountsById) {
+            this.accounts = accounts;
+            this.accountsById = accountsById;
+        }
+    }
+}
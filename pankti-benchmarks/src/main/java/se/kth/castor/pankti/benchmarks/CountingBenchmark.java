@@ -0,0 +1,46 @@
+package se.kth.castor.pankti.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.kth.castor.pankti.instrument.counters.InvocationCountRegistry;
+import se.kth.castor.pankti.instrument.counters.InvocationIdGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bookkeeping done for every invocation, captured or not: creating its id and counting it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountingBenchmark {
+    private Path countsFile;
+    private LongAdder invocationCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        countsFile = Files.createTempFile("pankti-benchmarks", "invocation-counts.txt");
+        invocationCount = new InvocationCountRegistry(countsFile).register("method");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(countsFile);
+    }
+
+    @Benchmark
+    public String invocationId() {
+        return InvocationIdGenerator.nextId();
+    }
+
+    @Benchmark
+    public void countInvocation() {
+        invocationCount.increment();
+    }
+}
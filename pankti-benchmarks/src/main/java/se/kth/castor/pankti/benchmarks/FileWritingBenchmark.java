@@ -0,0 +1,90 @@
+package se.kth.castor.pankti.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.kth.castor.pankti.instrument.counters.InvocationIdGenerator;
+import se.kth.castor.pankti.instrument.encoders.ObjectProfileEncoder;
+import se.kth.castor.pankti.instrument.memory.RecordRingBuffer;
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+import se.kth.castor.pankti.instrument.plugins.CapturedMethod;
+import se.kth.castor.pankti.instrument.plugins.Invocation;
+import se.kth.castor.pankti.instrument.writers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writing the encoded receiving object of an invocation in each capture mode:
+ * appended on the application thread by CapturedMethod (sync), handed to the background writer (async),
+ * or kept in a ring buffer (memory). The sync invocations have no parameters and return null.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileWritingBenchmark {
+    private final ObjectProfileEncoder encoder = ObjectProfileEncoder.forFormat("xml", AdviceTemplate.converterRegistry);
+    private Path objectDataDir;
+    private String objectFilePath;
+    private String sizeFilePath;
+    private ObjectProfileSizeBudget sizeBudget;
+    private AsyncObjectProfileWriter asyncWriter;
+    private RecordRingBuffer ringBuffer;
+    private CapturedMethod syncCapturedMethod;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectDataDir = Files.createTempDirectory("pankti-benchmarks");
+        objectFilePath = objectDataDir.resolve("method-receiving.xml").toString();
+        sizeFilePath = objectDataDir.resolve("method-object-profile-sizes.txt").toString();
+        sizeBudget = new ObjectProfileSizeBudget(List.of(objectFilePath), 0, new GlobalSizeBudget(0));
+        asyncWriter = new AsyncObjectProfileWriter(10000, BackpressurePolicy.DROP, 1);
+        asyncWriter.start();
+        ringBuffer = new RecordRingBuffer("method", 1000, 16L * 1024 * 1024, record -> { });
+        syncCapturedMethod = CapturedMethods.newCapturedMethod(getClass(), "syncAppend", Map.of("captureMode", "sync"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        asyncWriter.shutdown();
+        CapturedMethods.deleteObjectFiles(getClass(), "syncAppend");
+        try (Stream<Path> paths = Files.walk(objectDataDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Invocation syncAppend(CapturedObjects objects) {
+        Invocation invocation = syncCapturedMethod.onBefore(null, objects.receivingObject, null, "syncAppend");
+        syncCapturedMethod.onReturn(null, invocation);
+        return invocation;
+    }
+
+    @Benchmark
+    public boolean asyncSubmit(CapturedObjects objects) throws Exception {
+        if (!asyncWriter.acceptsInvocation()) {
+            return false;
+        }
+        return asyncWriter.submit(newRecord(objects));
+    }
+
+    @Benchmark
+    public boolean memoryBuffer(CapturedObjects objects) throws Exception {
+        return ringBuffer.add(newRecord(objects));
+    }
+
+    private ObjectProfileRecord newRecord(CapturedObjects objects) throws Exception {
+        String invocationId = InvocationIdGenerator.nextId();
+        ObjectProfileRecord record = new ObjectProfileRecord("method", invocationId, sizeFilePath, sizeBudget);
+        record.addEncodedObject(objectFilePath, encoder.encode(objects.receivingObject, invocationId));
+        return record;
+    }
+}
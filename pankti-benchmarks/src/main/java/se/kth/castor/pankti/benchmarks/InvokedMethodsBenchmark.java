@@ -0,0 +1,59 @@
+package se.kth.castor.pankti.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.kth.castor.pankti.instrument.plugins.CapturedMethod;
+import se.kth.castor.pankti.instrument.plugins.Invocation;
+import se.kth.castor.pankti.instrument.writers.InvokedMethodsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deduplicating the rows of invoked-methods.csv once a method has been invoked before:
+ * through the process-wide registry, and through the flag CapturedMethod checks first,
+ * when an invocation that is not captured returns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvokedMethodsBenchmark {
+    private static final String rowInCSVFile =
+            "public,com.example.Account,deposit,[long],void,(J)V,{},true,\"{returns=false,ifs=true}\"";
+
+    private Path invokedMethodsCSVFile;
+    private InvokedMethodsRegistry invokedMethodsRegistry;
+    private CapturedMethod capturedMethod;
+    private Invocation notCapturedInvocation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        invokedMethodsCSVFile = Files.createTempFile("pankti-benchmarks", "invoked-methods.csv");
+        invokedMethodsRegistry = new InvokedMethodsRegistry(invokedMethodsCSVFile);
+        invokedMethodsRegistry.register(rowInCSVFile);
+        capturedMethod = CapturedMethods.newCapturedMethod(getClass(), "invokedFlag", Map.of());
+        notCapturedInvocation = new Invocation(null, "invocation", null, null, 0L);
+        capturedMethod.onReturn(null, notCapturedInvocation);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(invokedMethodsCSVFile);
+        CapturedMethods.deleteObjectFiles(getClass(), "invokedFlag");
+    }
+
+    @Benchmark
+    public boolean registry() {
+        return invokedMethodsRegistry.register(rowInCSVFile);
+    }
+
+    @Benchmark
+    public void invokedFlag() {
+        capturedMethod.onReturn(null, notCapturedInvocation);
+    }
+}
@@ -0,0 +1,43 @@
+package se.kth.castor.pankti.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.kth.castor.pankti.instrument.counters.InvocationIdGenerator;
+import se.kth.castor.pankti.instrument.encoders.ObjectProfileEncoder;
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding the receiving object of an invocation in every profile format,
+ * which is what application threads pay for in async capture mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({"xml", "binary"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private ObjectProfileEncoder encoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        encoder = ObjectProfileEncoder.forFormat(format, compressed, AdviceTemplate.converterRegistry);
+    }
+
+    @Benchmark
+    public int encodeReceivingObject(CapturedObjects objects) throws Exception {
+        return encoder.encodeToBuffer(objects.receivingObject, InvocationIdGenerator.nextId()).size();
+    }
+
+    @Benchmark
+    public int encodeParameterObjects(CapturedObjects objects) throws Exception {
+        return encoder.encodeToBuffer(objects.parameterObjects, InvocationIdGenerator.nextId()).size();
+    }
+}
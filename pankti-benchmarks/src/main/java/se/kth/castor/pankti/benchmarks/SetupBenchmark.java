@@ -0,0 +1,34 @@
+package se.kth.castor.pankti.benchmarks;
+
+import com.thoughtworks.xstream.XStream;
+import org.openjdk.jmh.annotations.*;
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+import se.kth.castor.pankti.instrument.encoders.ObjectProfileEncoder;
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-off costs paid by every application thread and every instrumented method:
+ * setting up the XStream of a thread, and the encoder of a method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SetupBenchmark {
+    @Param({"xml", "binary"})
+    public String format;
+
+    @Benchmark
+    public XStream threadXStream() {
+        return new ConverterRegistry(AdviceTemplate::setUpXStream).getXStream();
+    }
+
+    @Benchmark
+    public ObjectProfileEncoder methodEncoder() {
+        return ObjectProfileEncoder.forFormat(format, AdviceTemplate.converterRegistry);
+    }
+}
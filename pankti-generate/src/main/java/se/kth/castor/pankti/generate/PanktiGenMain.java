@@ -42,6 +42,12 @@ public class PanktiGenMain implements Callable<Integer> {
                     "default: ${DEFAULT-VALUE}, candidates values: ${COMPLETION-CANDIDATES}")
     private TestFormat testFormat;
 
+    @CommandLine.Option(
+            names = {"--threads"},
+            paramLabel = "THREADS",
+            description = "Number of threads reading object files and preparing test methods, default: one per processor")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
     @CommandLine.Option(
             names = {"-h", "--help"},
             description = "Display help/usage.",
@@ -75,7 +81,7 @@ public class PanktiGenMain implements Callable<Integer> {
         System.out.println("POM found at: " + projectPom.getPath());
         System.out.println("Number of Maven modules: " + projectPom.getModel().getModules().size());
 
-        TestGenerator testGenerator = new TestGenerator(testFormat.toString());
+        TestGenerator testGenerator = new TestGenerator(testFormat.toString(), threads);
         System.out.println("Number of new test cases: " + testGenerator.process(model, launcher,
                 methodCSVFilePath.toString(), objectXMLDirectoryPath.toString()));
 
@@ -0,0 +1,94 @@
+package se.kth.castor.pankti.generate.generators;
+
+import se.kth.castor.pankti.generate.parsers.InstrumentedMethod;
+import se.kth.castor.pankti.generate.parsers.SerializedObject;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serialized objects of the invocations of one instrumented method, read from its object files,
+ * the counts reported for it, and the data of the test methods prepared from them.
+ * The test methods themselves are only generated once they are merged into the model.
+ */
+public class CapturedInvocations {
+    private final CtType<?> type;
+    private final CtMethod<?> method;
+    private final InstrumentedMethod instrumentedMethod;
+    private final List<SerializedObject> serializedObjects = new ArrayList<>();
+    private final List<TestMethodData> testMethodData = new ArrayList<>();
+    private boolean objectFilesFound;
+    private int serializedObjectCount;
+    private int truncatedInvocationCount;
+    private int incompleteInvocationCount;
+
+    public CapturedInvocations(CtType<?> type, CtMethod<?> method, InstrumentedMethod instrumentedMethod) {
+        this.type = type;
+        this.method = method;
+        this.instrumentedMethod = instrumentedMethod;
+    }
+
+    public CtType<?> getType() {
+        return type;
+    }
+
+    public CtMethod<?> getMethod() {
+        return method;
+    }
+
+    public InstrumentedMethod getInstrumentedMethod() {
+        return instrumentedMethod;
+    }
+
+    // Distinct invocations, in the order they were captured
+    public List<SerializedObject> getSerializedObjects() {
+        return serializedObjects;
+    }
+
+    public void addSerializedObject(SerializedObject serializedObject) {
+        serializedObjects.add(serializedObject);
+    }
+
+    // One per serialized object, in the same order
+    public List<TestMethodData> getTestMethodData() {
+        return testMethodData;
+    }
+
+    public void addTestMethodData(TestMethodData testMethodData) {
+        this.testMethodData.add(testMethodData);
+    }
+
+    public boolean isObjectFilesFound() {
+        return objectFilesFound;
+    }
+
+    public void setObjectFilesFound(boolean objectFilesFound) {
+        this.objectFilesFound = objectFilesFound;
+    }
+
+    public int getSerializedObjectCount() {
+        return serializedObjectCount;
+    }
+
+    public void setSerializedObjectCount(int serializedObjectCount) {
+        this.serializedObjectCount = serializedObjectCount;
+    }
+
+    public int getTruncatedInvocationCount() {
+        return truncatedInvocationCount;
+    }
+
+    public void setTruncatedInvocationCount(int truncatedInvocationCount) {
+        this.truncatedInvocationCount = truncatedInvocationCount;
+    }
+
+    public int getIncompleteInvocationCount() {
+        return incompleteInvocationCount;
+    }
+
+    public void setIncompleteInvocationCount(int incompleteInvocationCount) {
+        this.incompleteInvocationCount = incompleteInvocationCount;
+    }
+}
@@ -0,0 +1,67 @@
+package se.kth.castor.pankti.generate.generators;
+
+import se.kth.castor.pankti.generate.parsers.InstrumentedMethod;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeMember;
+
+import java.util.*;
+
+/**
+ * Types by qualified name, and their methods by name and by signature, built in one pass
+ * over the types to process, so that every instrumented method is found with a lookup.
+ */
+public class MethodIndex {
+    private final Map<String, CtType<?>> typesByQualifiedName = new HashMap<>();
+    // Keyed by qualified name of the type and method name, in the order of declaration
+    private final Map<String, List<CtMethod<?>>> methodsByName = new HashMap<>();
+    // Keyed by qualified name of the type, method name and qualified names of the parameter types
+    private final Map<String, CtMethod<?>> methodsBySignature = new HashMap<>();
+
+    public MethodIndex(List<CtType<?>> types) {
+        for (CtType<?> type : types) {
+            String qualifiedName = type.getQualifiedName();
+            typesByQualifiedName.putIfAbsent(qualifiedName, type);
+            for (CtTypeMember typeMember : type.getTypeMembers()) {
+                if (typeMember instanceof CtMethod) {
+                    CtMethod<?> method = (CtMethod<?>) typeMember;
+                    List<String> paramTypes = new ArrayList<>();
+                    method.getParameters().forEach(parameter -> paramTypes.add(parameter.getType().getQualifiedName()));
+                    methodsByName.computeIfAbsent(nameKey(qualifiedName, method.getSimpleName()), key -> new ArrayList<>())
+                            .add(method);
+                    methodsBySignature.putIfAbsent(signatureKey(qualifiedName, method.getSimpleName(), paramTypes), method);
+                }
+            }
+        }
+    }
+
+    private static String nameKey(String qualifiedName, String methodName) {
+        return qualifiedName + "#" + methodName;
+    }
+
+    private static String signatureKey(String qualifiedName, String methodName, List<String> paramTypes) {
+        return qualifiedName + "#" + methodName + "(" + String.join(",", paramTypes) + ")";
+    }
+
+    public CtType<?> getType(String qualifiedName) {
+        return typesByQualifiedName.get(qualifiedName);
+    }
+
+    // The method with the parameter types of the instrumented method if its name is overloaded, the first
+    // method of that name otherwise, and whether the parameter types were matched. Null if there is none
+    public Map.Entry<CtMethod<?>, Boolean> findMethod(InstrumentedMethod instrumentedMethod) {
+        List<CtMethod<?>> methods = methodsByName.get(
+                nameKey(instrumentedMethod.getParentFQN(), instrumentedMethod.getMethodName()));
+        if (methods == null) {
+            return null;
+        }
+        if (methods.size() > 1) {
+            CtMethod<?> method = methodsBySignature.get(signatureKey(instrumentedMethod.getParentFQN(),
+                    instrumentedMethod.getMethodName(), instrumentedMethod.getParamList()));
+            if (method != null) {
+                return new AbstractMap.SimpleEntry<>(method, true);
+            }
+        }
+        return new AbstractMap.SimpleEntry<>(methods.get(0), false);
+    }
+}
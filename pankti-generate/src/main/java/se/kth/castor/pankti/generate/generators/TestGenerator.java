@@ -4,6 +4,7 @@ import se.kth.castor.pankti.generate.parsers.CSVFileParser;
 import se.kth.castor.pankti.generate.parsers.InstrumentedMethod;
 import se.kth.castor.pankti.generate.parsers.ObjectXMLParser;
 import se.kth.castor.pankti.generate.parsers.SerializedObject;
+import se.kth.castor.pankti.generate.parsers.SerializedObjectReader;
 import spoon.MavenLauncher;
 import spoon.compiler.SpoonResource;
 import spoon.compiler.SpoonResourceHelper;
@@ -14,13 +15,21 @@ import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtExecutableReference;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class TestGenerator {
-    private static Factory factory;
+    // Spoon factories are not thread-safe, so elements are only created on the thread that merges them into the model
+    private Factory factory;
     private static final String XSTREAM_REFERENCE = "com.thoughtworks.xstream.XStream";
     private static final String XSTREAM_DRIVER_REFERENCE = "com.thoughtworks.xstream.io.json.JettisonMappedXmlDriver";
     private static final String XSTREAM_CONSTRUCTOR = "new XStream()";
@@ -34,13 +43,18 @@ public class TestGenerator {
 
     private static final String TEST_CLASS_PREFIX = "Test";
     private static final String TEST_CLASS_POSTFIX = "PanktiGen";
-    private static int numberOfTestCasesGenerated;
     private String testFormat;
+    private final int threads;
 
     private final TestGeneratorUtil testGenUtil = new TestGeneratorUtil();
 
     public TestGenerator(String testFormat) {
+        this(testFormat, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TestGenerator(String testFormat, int threads) {
         this.testFormat = testFormat;
+        this.threads = threads;
     }
 
     public String getGeneratedClassName(CtPackage ctPackage, String className) {
@@ -210,21 +224,22 @@ public class TestGenerator {
         return assertionStatements;
     }
 
-    public String createLongObjectStringFile(String methodIdentifier, String profileType, String longObjectStr, MavenLauncher launcher) {
+    public void createLongObjectStringFile(TestMethodData testMethodData, String methodIdentifier, String profileType, String longObjectStr) {
         String fileName = "";
+        File longObjectStrFile = null;
         try {
-            File longObjectStrFile = new File("./output/object-data/" + methodIdentifier + "-" + profileType + "." + this.testFormat);
+            longObjectStrFile = new File("./output/object-data/" + methodIdentifier + "-" + profileType + "." + this.testFormat);
             longObjectStrFile.getParentFile().mkdirs();
             FileWriter myWriter = new FileWriter(longObjectStrFile);
             myWriter.write(longObjectStr);
             myWriter.close();
             SpoonResource newResource = SpoonResourceHelper.createResource(longObjectStrFile);
-            launcher.addInputResource(longObjectStrFile.getAbsolutePath());
             fileName = newResource.getName();
         } catch (Exception e) {
+            longObjectStrFile = null;
             e.printStackTrace();
         }
-        return fileName;
+        testMethodData.addLongObjectFile(profileType, fileName, longObjectStrFile);
     }
 
     public CtStatement parseReceivingObjectFromFileOrString(String receivingObjectType, String fileOrString) {
@@ -316,29 +331,22 @@ public class TestGenerator {
 
     public List<CtStatement> generateStatementsInMethodBody(InstrumentedMethod instrumentedMethod,
                                                             CtMethod<?> method,
-                                                            int methodCounter,
-                                                            SerializedObject serializedObject,
-                                                            String receivingObjectStr,
-                                                            String receivingObjectType,
-                                                            String returnedObjectStr,
-                                                            String returnedObjectType,
-                                                            String receivingObjectPostStr,
-                                                            String paramsObjectStr,
-                                                            MavenLauncher launcher) throws ClassNotFoundException {
+                                                            TestMethodData testMethodData) throws ClassNotFoundException {
         List<CtStatement> methodBody = new ArrayList<>();
-        String postfix = "";
-        if (instrumentedMethod.isOverloaded()) {
-            postfix = testGenUtil.getParamListPostFix(instrumentedMethod);
-        }
-        String methodIdentifier = instrumentedMethod.getFullMethodPath() + postfix + methodCounter;
+        String receivingObjectStr = testMethodData.getReceivingObjectStr();
+        String receivingObjectType = testMethodData.getReceivingObjectType();
+        String returnedObjectStr = testMethodData.getReturnedObjectStr();
+        String returnedObjectType = testMethodData.getReturnedObjectType();
+        String receivingObjectPostStr = testMethodData.getReceivingPostObjectStr();
+        String paramsObjectStr = testMethodData.getParamsObjectStr();
         if (receivingObjectStr.length() > 10000 || returnedObjectStr.length() > 10000 || receivingObjectPostStr.length() > 10000 || paramsObjectStr.length() > 10000) {
             CtStatement classLoaderDeclaration = testGenUtil.addClassLoaderVariableToTestMethod(factory);
             methodBody.add(classLoaderDeclaration);
         }
 
-        if (receivingObjectStr.length() > 10000) {
+        if (testMethodData.hasLongObjectFile("receiving")) {
             String type = "receiving";
-            String fileName = createLongObjectStringFile(methodIdentifier, type, receivingObjectStr, launcher);
+            String fileName = testMethodData.getLongObjectFileName(type);
             CtStatement fileVariableDeclaration = testGenUtil.addFileVariableToTestMethod(factory, fileName, type);
             CtStatement parseReceivingObjectFromFile = parseReceivingObjectFromFileOrString(receivingObjectType, "file" + testGenUtil.getObjectProfileType(type));
             methodBody.add(fileVariableDeclaration);
@@ -351,9 +359,9 @@ public class TestGenerator {
         }
 
         if (method.getType().getSimpleName().equals("void")) {
-            if (receivingObjectPostStr.length() > 10000) {
+            if (testMethodData.hasLongObjectFile("receivingpost")) {
                 String type = "receivingpost";
-                String fileName = createLongObjectStringFile(methodIdentifier, type, receivingObjectPostStr, launcher);
+                String fileName = testMethodData.getLongObjectFileName(type);
                 CtStatement fileVariableDeclaration = testGenUtil.addFileVariableToTestMethod(factory, fileName, type);
                 CtStatement parseReceivingPostObjectPostFromFile = parseReceivingObjectPostFromFileOrString(receivingObjectType, "file" + testGenUtil.getObjectProfileType(type));
                 methodBody.add(fileVariableDeclaration);
@@ -365,9 +373,9 @@ public class TestGenerator {
                 methodBody.add(parseReceivingPostObjectFromString);
             }
         } else {
-            if (returnedObjectStr.length() > 10000) {
+            if (testMethodData.hasLongObjectFile("returned")) {
                 String type = "returned";
-                String fileName = createLongObjectStringFile(methodIdentifier, type, returnedObjectStr, launcher);
+                String fileName = testMethodData.getLongObjectFileName(type);
                 CtStatement fileVariableDeclaration = testGenUtil.addFileVariableToTestMethod(factory, fileName, type);
                 CtStatement parseReturnedObjectFromFile = parseReturnedObjectFromFileOrString(returnedObjectType, "file" + testGenUtil.getObjectProfileType(type));
                 methodBody.add(fileVariableDeclaration);
@@ -383,9 +391,9 @@ public class TestGenerator {
         }
 
         if (!paramsObjectStr.isEmpty()) {
-            if (paramsObjectStr.length() > 10000) {
+            if (testMethodData.hasLongObjectFile("params")) {
                 String type = "params";
-                String fileName = createLongObjectStringFile(methodIdentifier, type, paramsObjectStr, launcher);
+                String fileName = testMethodData.getLongObjectFileName(type);
                 CtStatement fileVariableDeclaration = testGenUtil.addFileVariableToTestMethod(factory, fileName, type);
                 CtStatement parseParamObjectsFromFile = parseParamObjectsFromFileOrString("file" + testGenUtil.getObjectProfileType(type));
                 methodBody.add(fileVariableDeclaration);
@@ -400,7 +408,7 @@ public class TestGenerator {
             methodBody.addAll(accessPrivateMethod(instrumentedMethod));
         }
 
-        methodBody.addAll(generateAssertionInTestMethod(method, serializedObject));
+        methodBody.addAll(generateAssertionInTestMethod(method, testMethodData.getSerializedObject()));
         return methodBody;
     }
 
@@ -422,121 +430,198 @@ public class TestGenerator {
         return generatedMethod;
     }
 
+    // Prepares the data of a test method per serialized object without the factory,
+    // writing the long serialized objects to their files, so that it can run on the reader threads
+    public CapturedInvocations prepareTestMethodData(CapturedInvocations capturedInvocations) {
+        InstrumentedMethod instrumentedMethod = capturedInvocations.getInstrumentedMethod();
+        String methodName = instrumentedMethod.getMethodName();
+        String postfix = "";
+        if (instrumentedMethod.isOverloaded()) {
+            postfix = testGenUtil.getParamListPostFix(instrumentedMethod);
+        }
+        int methodCounter = 1;
+        for (SerializedObject serializedObject : capturedInvocations.getSerializedObjects()) {
+            String testMethodName = "test" + methodName.substring(0, 1).toUpperCase() + methodName.substring(1)
+                    + postfix.replaceAll("[.,]", "_") + methodCounter;
+            String methodIdentifier = instrumentedMethod.getFullMethodPath() + postfix + methodCounter;
+
+            // Get serialized objects as XML strings
+            String receivingObjectStr = serializedObject.getReceivingObject();
+            String receivingObjectType = serializedObject.getObjectType(receivingObjectStr);
+            String returnedObjectStr = serializedObject.getReturnedObject();
+            String returnedObjectType = instrumentedMethod.getReturnType();
+            String receivingPostObjectStr = serializedObject.getReceivingPostObject();
+
+            String paramsObjectStr = "";
+            if (instrumentedMethod.hasParams()) {
+                paramsObjectStr = serializedObject.getParamObjects();
+            }
+
+            if (this.testFormat.equals("json")) {
+                receivingObjectStr = testGenUtil.transformXML2JSON(receivingObjectStr);
+                returnedObjectStr = testGenUtil.transformXML2JSON(returnedObjectStr);
+                if (paramsObjectStr.length() > 0) {
+                    paramsObjectStr = testGenUtil.transformXML2JSON(paramsObjectStr);
+                }
+            }
+
+            TestMethodData testMethodData = new TestMethodData(serializedObject, testMethodName,
+                    receivingObjectStr, receivingObjectType, returnedObjectStr, returnedObjectType,
+                    receivingPostObjectStr, paramsObjectStr);
+            if (receivingObjectStr.length() > 10000) {
+                createLongObjectStringFile(testMethodData, methodIdentifier, "receiving", receivingObjectStr);
+            }
+            // The return type in the CSV file is that of the method in the model
+            if (returnedObjectType.equals("void")) {
+                if (receivingPostObjectStr.length() > 10000) {
+                    createLongObjectStringFile(testMethodData, methodIdentifier, "receivingpost", receivingPostObjectStr);
+                }
+            } else if (returnedObjectStr.length() > 10000) {
+                createLongObjectStringFile(testMethodData, methodIdentifier, "returned", returnedObjectStr);
+            }
+            if (paramsObjectStr.length() > 10000) {
+                createLongObjectStringFile(testMethodData, methodIdentifier, "params", paramsObjectStr);
+            }
+            capturedInvocations.addTestMethodData(testMethodData);
+            methodCounter++;
+        }
+        return capturedInvocations;
+    }
+
     public CtMethod<?> generateTestMethod(CtMethod<?> method,
-                                          int methodCounter,
                                           InstrumentedMethod instrumentedMethod,
-                                          SerializedObject serializedObject,
+                                          TestMethodData testMethodData,
                                           MavenLauncher launcher) throws ClassNotFoundException {
         CtMethod<?> generatedMethod = factory.createMethod();
-        String postfix = "";
-        if (instrumentedMethod.isOverloaded()) {
-            postfix = testGenUtil.getParamListPostFix(instrumentedMethod).replaceAll("[.,]", "_");
-        }
-        generatedMethod.setSimpleName("test" + method.getSimpleName().substring(0, 1).toUpperCase() + method.getSimpleName().substring(1) + postfix + methodCounter);
+        generatedMethod.setSimpleName(testMethodData.getTestMethodName());
         CtAnnotation<?> testAnnotation = factory.createAnnotation(factory.createCtTypeReference(Class.forName(JUNIT_TEST_REFERENCE)));
         generatedMethod.addAnnotation(testAnnotation);
         generatedMethod.setModifiers(Collections.singleton(ModifierKind.PUBLIC));
         generatedMethod.setType(factory.createCtTypeReference(void.class));
         generatedMethod.addThrownType(factory.createCtTypeReference(Exception.class));
 
-        // Get serialized objects as XML strings
-        String receivingObjectStr = serializedObject.getReceivingObject();
-        String receivingObjectType = serializedObject.getObjectType(receivingObjectStr);
-        String returnedObjectStr = serializedObject.getReturnedObject();
-        String returnedObjectType = instrumentedMethod.getReturnType();
-        String receivingPostObjectStr = serializedObject.getReceivingPostObject();
-
-        String paramsObjectStr = "";
-        if (instrumentedMethod.hasParams()) {
-            paramsObjectStr = serializedObject.getParamObjects();
-        }
-
-        if (this.testFormat.equals("json")) {
-            receivingObjectStr = testGenUtil.transformXML2JSON(receivingObjectStr);
-            returnedObjectStr = testGenUtil.transformXML2JSON(returnedObjectStr);
-            if (paramsObjectStr.length() > 0) {
-                paramsObjectStr = testGenUtil.transformXML2JSON(paramsObjectStr);
-            }
+        for (File longObjectFile : testMethodData.getLongObjectFiles()) {
+            launcher.addInputResource(longObjectFile.getAbsolutePath());
         }
 
         CtBlock<?> methodBody = factory.createBlock();
 
         List<CtStatement> statementsInMethodBody =
-                generateStatementsInMethodBody(instrumentedMethod, method, methodCounter, serializedObject,
-                        receivingObjectStr, receivingObjectType, returnedObjectStr, returnedObjectType, receivingPostObjectStr,
-                        paramsObjectStr, launcher);
+                generateStatementsInMethodBody(instrumentedMethod, method, testMethodData);
 
         statementsInMethodBody.forEach(methodBody::addStatement);
         generatedMethod.setBody(methodBody);
         return generatedMethod;
     }
 
-    public CtClass<?> generateFullTestClass(CtType<?> type,
-                                            CtMethod<?> method,
-                                            InstrumentedMethod instrumentedMethod,
-                                            MavenLauncher launcher,
-                                            String objectXMLDirectoryPath) throws ClassNotFoundException {
+    // Neither reads nor changes the model, so that the object files of several methods can be read at once
+    public CapturedInvocations readCapturedInvocations(CtType<?> type,
+                                                       CtMethod<?> method,
+                                                       InstrumentedMethod instrumentedMethod,
+                                                       String objectXMLDirectoryPath) {
         String methodPath = instrumentedMethod.getFullMethodPath();
         ObjectXMLParser objectXMLParser = new ObjectXMLParser();
-        Set<SerializedObject> serializedObjects = objectXMLParser.parseXML(
-                objectXMLDirectoryPath + File.separatorChar + methodPath, instrumentedMethod);
-        System.out.println("Number of unique pairs/triples of object values: " + serializedObjects.size());
-
-        if (serializedObjects.size() == 0) {
-            System.out.println("NO OBJECTS FOUND FOR " + instrumentedMethod.getFullMethodPath() + " - SKIPPING");
-            return null;
-        } else {
-            numberOfTestCasesGenerated += serializedObjects.size();
-
-            factory = type.getFactory();
-            CtClass<?> generatedClass = factory.Class().get(getGeneratedClassName(type.getPackage(), type.getSimpleName()));
-            if (generatedClass == null) {
-                generatedClass = generateTestClass(type.getPackage(), type.getSimpleName());
-                generatedClass.addField(addXStreamFieldToGeneratedClass());
-                addDeserializationMethodsToTestClass().forEach(generatedClass::addMethod);
+        CapturedInvocations capturedInvocations = new CapturedInvocations(type, method, instrumentedMethod);
+        // The object files are read and joined one invocation at a time
+        try (SerializedObjectReader serializedObjects = objectXMLParser.openSerializedObjects(
+                objectXMLDirectoryPath + File.separatorChar + methodPath, instrumentedMethod)) {
+            capturedInvocations.setObjectFilesFound(true);
+            while (serializedObjects.hasNext()) {
+                capturedInvocations.addSerializedObject(serializedObjects.next());
             }
+            capturedInvocations.setSerializedObjectCount(serializedObjects.getSerializedObjectCount());
+            capturedInvocations.setTruncatedInvocationCount(serializedObjects.getTruncatedInvocationCount());
+            capturedInvocations.setIncompleteInvocationCount(serializedObjects.getIncompleteInvocationCount());
+        } catch (FileNotFoundException e) {
+            capturedInvocations.setObjectFilesFound(false);
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        }
+        return capturedInvocations;
+    }
 
-            // Create @Before method
-            // generatedClass.addMethod(generateSetupMethod());
-
+    public List<CtMethod<?>> generateTestMethods(CapturedInvocations capturedInvocations,
+                                                 MavenLauncher launcher) throws ClassNotFoundException {
+        List<CtMethod<?>> testMethods = new ArrayList<>();
+        for (TestMethodData testMethodData : capturedInvocations.getTestMethodData()) {
             // Create @Test method
-            int methodCounter = 1;
-            for (SerializedObject serializedObject : serializedObjects) {
-                CtMethod<?> generatedMethod = generateTestMethod(method, methodCounter, instrumentedMethod, serializedObject, launcher);
-                generatedClass.addMethod(generatedMethod);
-                methodCounter++;
+            testMethods.add(generateTestMethod(capturedInvocations.getMethod(),
+                    capturedInvocations.getInstrumentedMethod(), testMethodData, launcher));
+        }
+        return testMethods;
+    }
+
+    // Generates the test methods and adds them to the test class of the type, creating it if needed.
+    // Returns the number of test methods added
+    public int addTestMethodsToTestClass(CapturedInvocations capturedInvocations,
+                                         MavenLauncher launcher,
+                                         String objectXMLDirectoryPath) throws ClassNotFoundException {
+        InstrumentedMethod instrumentedMethod = capturedInvocations.getInstrumentedMethod();
+        if (!capturedInvocations.isObjectFilesFound()) {
+            System.out.println("NO OBJECT FILES FOUND FOR " + objectXMLDirectoryPath + File.separatorChar
+                    + instrumentedMethod.getFullMethodPath() + " - SKIPPING");
+        } else {
+            System.out.println("Number of pairs/triples of object values: " + capturedInvocations.getSerializedObjectCount());
+            if (capturedInvocations.getTruncatedInvocationCount() > 0) {
+                System.out.println("Skipped invocations with truncated objects: "
+                        + capturedInvocations.getTruncatedInvocationCount());
+            }
+            if (capturedInvocations.getIncompleteInvocationCount() > 0) {
+                System.out.println("Skipped invocations that never returned: "
+                        + capturedInvocations.getIncompleteInvocationCount());
             }
-            return generatedClass;
+            System.out.println("Number of unique pairs/triples of object values: "
+                    + capturedInvocations.getSerializedObjects().size());
         }
 
+        if (capturedInvocations.getSerializedObjects().isEmpty()) {
+            System.out.println("NO OBJECTS FOUND FOR " + instrumentedMethod.getFullMethodPath() + " - SKIPPING");
+            return 0;
+        }
+        CtType<?> type = capturedInvocations.getType();
+        CtClass<?> generatedClass = factory.Class().get(getGeneratedClassName(type.getPackage(), type.getSimpleName()));
+        if (generatedClass == null) {
+            generatedClass = generateTestClass(type.getPackage(), type.getSimpleName());
+            generatedClass.addField(addXStreamFieldToGeneratedClass());
+            addDeserializationMethodsToTestClass().forEach(generatedClass::addMethod);
+        }
+
+        // Create @Before method
+        // generatedClass.addMethod(generateSetupMethod());
+
+        List<CtMethod<?>> testMethods = generateTestMethods(capturedInvocations, launcher);
+        testMethods.forEach(generatedClass::addMethod);
+        System.out.println("Generated test class: " + generatedClass.getQualifiedName());
+        return testMethods.size();
     }
 
-    public List<CtType<?>> getTypesToProcess(CtModel ctModel) {
-        List<CtType<?>> types = ctModel.getAllTypes().stream().
-                filter(ctType -> ctType.isClass() || ctType.isEnum()).
-                collect(Collectors.toList());
-        List<CtType<?>> typesToProcess = new ArrayList<>(types);
-        for (CtType<?> type : types) {
-            typesToProcess.addAll(type.getNestedTypes());
+    public CtClass<?> generateFullTestClass(CtType<?> type,
+                                            CtMethod<?> method,
+                                            InstrumentedMethod instrumentedMethod,
+                                            MavenLauncher launcher,
+                                            String objectXMLDirectoryPath) throws ClassNotFoundException {
+        factory = type.getFactory();
+        int numberOfTestMethods = addTestMethodsToTestClass(
+                prepareTestMethodData(readCapturedInvocations(type, method, instrumentedMethod, objectXMLDirectoryPath)),
+                launcher, objectXMLDirectoryPath);
+        if (numberOfTestMethods == 0) {
+            return null;
         }
-        return typesToProcess;
+        return factory.Class().get(getGeneratedClassName(type.getPackage(), type.getSimpleName()));
     }
 
-    private Map.Entry<CtMethod<?>, Boolean> findMethodToGenerateTestMethodsFor(List<CtMethod<?>> methodsByName, InstrumentedMethod instrumentedMethod) {
-        if (methodsByName.size() > 1) {
-            // match parameter list for overloaded methods
-            for (CtMethod<?> method : methodsByName) {
-                List<String> paramTypes = method.getParameters().stream().
-                        map(parameter -> parameter.getType().getQualifiedName()).
-                        collect(Collectors.toList());
-                if (Arrays.equals(paramTypes.toArray(), instrumentedMethod.getParamList().toArray())) {
-                    System.out.println("matched params " + paramTypes + " for overloaded method " +
-                            instrumentedMethod.getFullMethodPath());
-                    return new AbstractMap.SimpleEntry<>(method, true);
-                }
-            }
+    // Classes and enums, and the types nested in them at any depth
+    public List<CtType<?>> getTypesToProcess(CtModel ctModel) {
+        Deque<CtType<?>> typesToVisit = ctModel.getAllTypes().stream().
+                filter(ctType -> ctType.isClass() || ctType.isEnum()).
+                collect(Collectors.toCollection(ArrayDeque::new));
+        List<CtType<?>> typesToProcess = new ArrayList<>();
+        while (!typesToVisit.isEmpty()) {
+            CtType<?> type = typesToVisit.remove();
+            typesToProcess.add(type);
+            typesToVisit.addAll(type.getNestedTypes());
         }
-        return new AbstractMap.SimpleEntry<>(methodsByName.get(0), false);
+        return typesToProcess;
     }
 
     public int process(CtModel ctModel, MavenLauncher launcher, String methodCSVFilePath, String objectXMLDirectoryPath) {
@@ -544,33 +629,66 @@ public class TestGenerator {
         List<InstrumentedMethod> instrumentedMethods = CSVFileParser.parseCSVFile(methodCSVFilePath);
         System.out.println("Number of instrumented methods: " + instrumentedMethods.size());
         System.out.println("--------------------------------------------------------------");
-        List<CtType<?>> types = getTypesToProcess(ctModel);
-
-        for (CtType<?> type : types) {
+        MethodIndex methodIndex = new MethodIndex(getTypesToProcess(ctModel));
+        int numberOfTestCasesGenerated = 0;
+        factory = ctModel.getRootPackage().getFactory();
+
+        // Object files are read and joined, and the data of the test methods prepared from them, on the pool:
+        // the object strings in the test format, the test method names and the files of the long objects.
+        // Only the Spoon elements are created and added to the model on this thread, in the order of the methods
+        // in the CSV file. At most two methods per thread wait, so that their objects do not pile up
+        ExecutorService readerPool = Executors.newFixedThreadPool(threads);
+        Deque<Future<CapturedInvocations>> pendingInvocations = new ArrayDeque<>();
+        try {
             for (InstrumentedMethod instrumentedMethod : instrumentedMethods) {
-                if (type.getQualifiedName().equals(instrumentedMethod.getParentFQN())) {
-                    List<CtMethod<?>> methodsByName = type.getMethodsByName(instrumentedMethod.getMethodName());
-                    if (methodsByName.size() > 0) {
-                        Map.Entry<CtMethod<?>, Boolean> methodAndOverload = findMethodToGenerateTestMethodsFor(methodsByName, instrumentedMethod);
-                        CtMethod<?> methodToGenerateTestsFor = methodAndOverload.getKey();
-                        instrumentedMethod.setOverloaded(methodAndOverload.getValue());
-                        System.out.println("Generating test method for: " +
-                                instrumentedMethod.getParentFQN() + "." + instrumentedMethod.getMethodName());
-                        try {
-                            CtClass<?> generatedClass = generateFullTestClass(
-                                    type, methodToGenerateTestsFor, instrumentedMethod,
-                                    launcher, objectXMLDirectoryPath);
-                            if (generatedClass != null) {
-                                System.out.println("Generated test class: " + generatedClass.getQualifiedName());
-                            }
-                            System.out.println("--------------------------------------------------------------");
-                        } catch (ClassNotFoundException e) {
-                            e.printStackTrace();
-                        }
-                    }
+                CtType<?> type = methodIndex.getType(instrumentedMethod.getParentFQN());
+                Map.Entry<CtMethod<?>, Boolean> methodAndOverload = methodIndex.findMethod(instrumentedMethod);
+                if (type == null || methodAndOverload == null) {
+                    continue;
+                }
+                CtMethod<?> methodToGenerateTestsFor = methodAndOverload.getKey();
+                instrumentedMethod.setOverloaded(methodAndOverload.getValue());
+                if (instrumentedMethod.isOverloaded()) {
+                    System.out.println("matched params " + instrumentedMethod.getParamList() + " for overloaded method " +
+                            instrumentedMethod.getFullMethodPath());
+                }
+                pendingInvocations.add(readerPool.submit(() -> prepareTestMethodData(readCapturedInvocations(
+                        type, methodToGenerateTestsFor, instrumentedMethod, objectXMLDirectoryPath))));
+                if (pendingInvocations.size() > 2 * threads) {
+                    numberOfTestCasesGenerated += addNextTestMethodsToTestClass(
+                            pendingInvocations, launcher, objectXMLDirectoryPath);
                 }
             }
+            while (!pendingInvocations.isEmpty()) {
+                numberOfTestCasesGenerated += addNextTestMethodsToTestClass(
+                        pendingInvocations, launcher, objectXMLDirectoryPath);
+            }
+        } finally {
+            readerPool.shutdownNow();
         }
         return numberOfTestCasesGenerated;
     }
+
+    // Returns the number of test methods added
+    private int addNextTestMethodsToTestClass(Deque<Future<CapturedInvocations>> pendingInvocations,
+                                              MavenLauncher launcher,
+                                              String objectXMLDirectoryPath) {
+        try {
+            CapturedInvocations capturedInvocations = pendingInvocations.remove().get();
+            InstrumentedMethod instrumentedMethod = capturedInvocations.getInstrumentedMethod();
+            System.out.println("Generating test method for: " +
+                    instrumentedMethod.getParentFQN() + "." + instrumentedMethod.getMethodName());
+            int numberOfTestMethods = addTestMethodsToTestClass(capturedInvocations, launcher, objectXMLDirectoryPath);
+            System.out.println("--------------------------------------------------------------");
+            return numberOfTestMethods;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
 }
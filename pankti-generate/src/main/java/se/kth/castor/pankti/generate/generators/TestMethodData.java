@@ -0,0 +1,98 @@
+package se.kth.castor.pankti.generate.generators;
+
+import se.kth.castor.pankti.generate.parsers.SerializedObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a test method is generated from that does not need the Spoon factory: its name, the serialized objects
+ * in the test format, and the files the long ones were written to. Prepared on the reader threads.
+ */
+public class TestMethodData {
+    private final SerializedObject serializedObject;
+    private final String testMethodName;
+    private final String receivingObjectStr;
+    private final String receivingObjectType;
+    private final String returnedObjectStr;
+    private final String returnedObjectType;
+    private final String receivingPostObjectStr;
+    private final String paramsObjectStr;
+    // Resource file names by object profile type, e.g. "receiving"
+    private final Map<String, String> longObjectFileNames = new HashMap<>();
+    private final List<File> longObjectFiles = new ArrayList<>();
+
+    public TestMethodData(SerializedObject serializedObject,
+                          String testMethodName,
+                          String receivingObjectStr,
+                          String receivingObjectType,
+                          String returnedObjectStr,
+                          String returnedObjectType,
+                          String receivingPostObjectStr,
+                          String paramsObjectStr) {
+        this.serializedObject = serializedObject;
+        this.testMethodName = testMethodName;
+        this.receivingObjectStr = receivingObjectStr;
+        this.receivingObjectType = receivingObjectType;
+        this.returnedObjectStr = returnedObjectStr;
+        this.returnedObjectType = returnedObjectType;
+        this.receivingPostObjectStr = receivingPostObjectStr;
+        this.paramsObjectStr = paramsObjectStr;
+    }
+
+    public SerializedObject getSerializedObject() {
+        return serializedObject;
+    }
+
+    public String getTestMethodName() {
+        return testMethodName;
+    }
+
+    public String getReceivingObjectStr() {
+        return receivingObjectStr;
+    }
+
+    public String getReceivingObjectType() {
+        return receivingObjectType;
+    }
+
+    public String getReturnedObjectStr() {
+        return returnedObjectStr;
+    }
+
+    public String getReturnedObjectType() {
+        return returnedObjectType;
+    }
+
+    public String getReceivingPostObjectStr() {
+        return receivingPostObjectStr;
+    }
+
+    public String getParamsObjectStr() {
+        return paramsObjectStr;
+    }
+
+    public boolean hasLongObjectFile(String profileType) {
+        return longObjectFileNames.containsKey(profileType);
+    }
+
+    public String getLongObjectFileName(String profileType) {
+        return longObjectFileNames.get(profileType);
+    }
+
+    // The file is null if it could not be written, the test method then refers to an empty file name as before
+    public void addLongObjectFile(String profileType, String fileName, File longObjectFile) {
+        longObjectFileNames.put(profileType, fileName);
+        if (longObjectFile != null) {
+            longObjectFiles.add(longObjectFile);
+        }
+    }
+
+    // Added to the input resources of the launcher when the test method is merged into the model
+    public List<File> getLongObjectFiles() {
+        return longObjectFiles;
+    }
+}
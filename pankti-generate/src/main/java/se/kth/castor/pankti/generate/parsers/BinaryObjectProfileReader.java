@@ -0,0 +1,44 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+
+import java.io.*;
+import java.util.AbstractMap;
+import java.util.Map;
+
+/**
+ * Reads length-prefixed binary object records one at a time, and converts each
+ * back to the XML written in xml mode. Every record starts with the id of its invocation.
+ */
+public class BinaryObjectProfileReader implements ObjectProfileReader {
+    private final HierarchicalStreamCopier copier = new HierarchicalStreamCopier();
+    private final DataInputStream objectStream;
+
+    public BinaryObjectProfileReader(InputStream objectStream) {
+        this.objectStream = new DataInputStream(new BufferedInputStream(objectStream));
+    }
+
+    @Override
+    public Map.Entry<String, String> next() throws IOException {
+        int recordLength;
+        try {
+            recordLength = objectStream.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] record = new byte[recordLength];
+        objectStream.readFully(record);
+        DataInputStream recordStream = new DataInputStream(new ByteArrayInputStream(record));
+        String invocationId = recordStream.readUTF();
+        StringWriter stringWriter = new StringWriter();
+        copier.copy(new BinaryStreamReader(recordStream), new PrettyPrintWriter(stringWriter));
+        return new AbstractMap.SimpleImmutableEntry<>(invocationId, stringWriter.toString().trim());
+    }
+
+    @Override
+    public void close() throws IOException {
+        objectStream.close();
+    }
+}
@@ -0,0 +1,87 @@
+package se.kth.castor.pankti.generate.parsers;
+
+/**
+ * Set of the fingerprints of the invocations of one method, kept as pairs of longs in an
+ * open-addressing table that is a quarter to half full: 32 to 64 bytes per invocation,
+ * and no object per entry.
+ */
+public class FingerprintSet {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Slot i holds high at 2 * i and low at 2 * i + 1, both 0 if it is empty
+    private long[] slots = new long[2 * INITIAL_CAPACITY];
+    private int size;
+    private boolean containsZero;
+
+    // Returns false if the fingerprint was already in the set
+    public boolean add(ObjectFingerprint fingerprint) {
+        long high = fingerprint.getHigh();
+        long low = fingerprint.getLow();
+        if (high == 0L && low == 0L) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if (2 * (size + 1) > slots.length / 2) {
+            resize();
+        }
+        if (!insert(slots, high, low)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    public boolean contains(ObjectFingerprint fingerprint) {
+        long high = fingerprint.getHigh();
+        long low = fingerprint.getLow();
+        if (high == 0L && low == 0L) {
+            return containsZero;
+        }
+        int mask = slots.length / 2 - 1;
+        for (int slot = (int) low & mask; ; slot = (slot + 1) & mask) {
+            long slotHigh = slots[2 * slot];
+            long slotLow = slots[2 * slot + 1];
+            if (slotHigh == 0L && slotLow == 0L) {
+                return false;
+            }
+            if (slotHigh == high && slotLow == low) {
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Linear probing, the table is at most half full
+    private static boolean insert(long[] slots, long high, long low) {
+        int mask = slots.length / 2 - 1;
+        for (int slot = (int) low & mask; ; slot = (slot + 1) & mask) {
+            long slotHigh = slots[2 * slot];
+            long slotLow = slots[2 * slot + 1];
+            if (slotHigh == 0L && slotLow == 0L) {
+                slots[2 * slot] = high;
+                slots[2 * slot + 1] = low;
+                return true;
+            }
+            if (slotHigh == high && slotLow == low) {
+                return false;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] resizedSlots = new long[2 * slots.length];
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != 0L || slots[i + 1] != 0L) {
+                insert(resizedSlots, slots[i], slots[i + 1]);
+            }
+        }
+        slots = resizedSlots;
+    }
+}
@@ -0,0 +1,171 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the invocation log written by pankti-instrument in log storage mode.
+ * The indexes of all segments in a directory are loaded once, so that the objects
+ * of one object file can be read back without scanning the segments.
+ */
+public class InvocationLogReader {
+    private static final String segmentFileExtension = ".log";
+    private static final String indexFileExtension = ".idx";
+    private static final Map<File, InvocationLogReader> readerByDirectory = new ConcurrentHashMap<>();
+
+    private final Map<String, List<RecordLocation>> recordsByObjectFileName = new HashMap<>();
+
+    public InvocationLogReader(File directory) {
+        File[] indexFiles = directory.listFiles((dir, name) -> name.endsWith(indexFileExtension));
+        if (indexFiles == null) {
+            return;
+        }
+        Arrays.sort(indexFiles);
+        for (File indexFile : indexFiles) {
+            String indexPath = indexFile.getPath();
+            File segmentFile = new File(indexPath.substring(0, indexPath.length() - indexFileExtension.length())
+                    + segmentFileExtension);
+            try {
+                for (String indexLine : Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8)) {
+                    String[] fields = indexLine.split("\t");
+                    if (fields.length < 4) {
+                        continue;
+                    }
+                    RecordLocation location = new RecordLocation(segmentFile, Long.parseLong(fields[0]));
+                    for (int i = 3; i < fields.length; i++) {
+                        recordsByObjectFileName.computeIfAbsent(fields[i], k -> new ArrayList<>()).add(location);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static InvocationLogReader forDirectory(File directory) {
+        return readerByDirectory.computeIfAbsent(directory, InvocationLogReader::new);
+    }
+
+    public boolean hasObjectFile(String objectFileName) {
+        return recordsByObjectFileName.containsKey(objectFileName);
+    }
+
+    // The encoded objects of the object file, in the order they were captured.
+    // Each record is only read when the stream reaches it
+    public InputStream openObjectFile(String objectFileName) {
+        return new BufferedInputStream(new ObjectFileStream(objectFileName,
+                recordsByObjectFileName.getOrDefault(objectFileName, List.of())), 65536);
+    }
+
+    /**
+     * Seeks to the records of one object file in turn, and reads the object of the file
+     * from each record on demand. Every segment is opened once and kept open until the stream is closed.
+     */
+    private static class ObjectFileStream extends InputStream {
+        private final String objectFileName;
+        private final Iterator<RecordLocation> locations;
+        private final Map<File, RandomAccessFile> openSegments = new HashMap<>();
+        private RandomAccessFile segment;
+        // Bytes of the current object not read yet
+        private long remaining;
+
+        ObjectFileStream(String objectFileName, List<RecordLocation> locations) {
+            this.objectFileName = objectFileName;
+            this.locations = locations.iterator();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextObjectIfNeeded()) {
+                return -1;
+            }
+            int b = segment.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextObjectIfNeeded()) {
+                return -1;
+            }
+            int count = segment.read(bytes, offset, (int) Math.min(length, remaining));
+            if (count < 0) {
+                throw new EOFException();
+            }
+            remaining -= count;
+            return count;
+        }
+
+        // Returns false once the objects of all records have been read
+        private boolean nextObjectIfNeeded() throws IOException {
+            while (remaining == 0) {
+                if (!locations.hasNext()) {
+                    return false;
+                }
+                seekToObject(locations.next());
+            }
+            return true;
+        }
+
+        private void seekToObject(RecordLocation location) throws IOException {
+            segment = openSegments.get(location.segmentFile);
+            if (segment == null) {
+                segment = new RandomAccessFile(location.segmentFile, "r");
+                openSegments.put(location.segmentFile, segment);
+            }
+            segment.seek(location.offset);
+            long recordEnd;
+            try {
+                recordEnd = location.offset + 4 + segment.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            if (recordEnd > segment.length()) {
+                // The record was cut off when the instrumented process stopped
+                return;
+            }
+            // Method FQN, invocation id and thread name
+            segment.readUTF();
+            segment.readUTF();
+            segment.readUTF();
+            int objectCount = segment.readShort();
+            for (int i = 0; i < objectCount; i++) {
+                String name = segment.readUTF();
+                int length = segment.readInt();
+                if (name.equals(objectFileName)) {
+                    remaining = length;
+                    return;
+                }
+                segment.seek(segment.getFilePointer() + length);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RandomAccessFile openSegment : openSegments.values()) {
+                openSegment.close();
+            }
+            openSegments.clear();
+        }
+    }
+
+    private static class RecordLocation {
+        private final File segmentFile;
+        private final long offset;
+
+        RecordLocation(File segmentFile, long offset) {
+            this.segmentFile = segmentFile;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package se.kth.castor.pankti.generate.parsers;
+
+/**
+ * 128-bit fingerprint of the objects of an invocation, made of two 64-bit hashes with
+ * independent constants folded over their characters in one pass. Invocations are told
+ * apart by their fingerprints, so their XML does not need to be kept to find duplicates.
+ */
+public final class ObjectFingerprint {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_SEED = 0x9e3779b97f4a7c15L;
+    private static final long MIX_MULTIPLIER_1 = 0x87c37b91114253d5L;
+    private static final long MIX_MULTIPLIER_2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    public ObjectFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static ObjectFingerprint of(String... objects) {
+        long fnvHash = FNV_OFFSET_BASIS;
+        long mixHash = MIX_SEED;
+        for (String object : objects) {
+            for (int i = 0; i < object.length(); i++) {
+                char c = object.charAt(i);
+                fnvHash = (fnvHash ^ c) * FNV_PRIME;
+                mixHash = Long.rotateLeft(mixHash ^ (c * MIX_MULTIPLIER_1), 31) * MIX_MULTIPLIER_2;
+            }
+            // Separate objects, so that "ab" + "c" and "a" + "bc" differ
+            fnvHash *= FNV_PRIME;
+            mixHash = Long.rotateLeft(mixHash, 31) * MIX_MULTIPLIER_2;
+        }
+        return new ObjectFingerprint(finalizeHash(fnvHash), finalizeHash(mixHash));
+    }
+
+    // Spreads every input bit over the whole hash, as in MurmurHash3
+    private static long finalizeHash(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ObjectFingerprint that = (ObjectFingerprint) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) low;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
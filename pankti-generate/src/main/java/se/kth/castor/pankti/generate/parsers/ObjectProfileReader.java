@@ -0,0 +1,14 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads the objects of an object file one at a time, as the XML pankti-generate works with,
+ * so that only the object being read has to fit in memory.
+ */
+public interface ObjectProfileReader extends Closeable {
+    // The next object keyed by the id of its invocation, or null at the end of the file
+    Map.Entry<String, String> next() throws IOException;
+}
@@ -1,122 +1,172 @@
 package se.kth.castor.pankti.generate.parsers;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.ls.DOMImplementationLS;
-import org.w3c.dom.ls.LSSerializer;
 import se.kth.castor.pankti.generate.generators.TestGeneratorUtil;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.*;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 public class ObjectXMLParser {
-    Set<SerializedObject> serializedObjects = new HashSet<>();
     private static final String receivingObjectFilePostfix = "-receiving.xml";
     private static final String paramObjectsFilePostfix = "-params.xml";
     private static final String returnedObjectFilePostfix = "-returned.xml";
     private static final String receivingPostObjectFilePostfix = "-receiving-post.xml";
+    private static final String binaryObjectFileExtension = ".bin";
+    private static final String compressedObjectFileExtension = ".gz";
+    // Written by pankti-instrument on the parts of an object graph cut off by the capture bounds
+    private static final String truncatedObjectMarker = " pankti-truncated=\"";
 
-    public InputStream addRootElementToXMLFile(File inputFile) throws FileNotFoundException {
-        FileInputStream fis = new FileInputStream(inputFile);
-        List<InputStream> streams =
-                Arrays.asList(
-                        new ByteArrayInputStream("<root>".getBytes()),
-                        fis,
-                        new ByteArrayInputStream("</root>".getBytes()));
-        return new SequenceInputStream(Collections.enumeration(streams));
+    public InputStream openObjectFile(File inputFile) throws IOException {
+        return decompressIfNeeded(new FileInputStream(inputFile), inputFile.getName());
+    }
+
+    // Object files captured with compression are gzip streams made of one member per object
+    public InputStream decompressIfNeeded(InputStream objectStream, String objectFileName) throws IOException {
+        if (objectFileName.endsWith(compressedObjectFileExtension)) {
+            return new GZIPInputStream(new BufferedInputStream(objectStream, 65536), 65536);
+        }
+        return objectStream;
     }
 
     public File findXMLFileByObjectType(String basePath, String type) {
         return new File(basePath + type);
     }
 
-    public String cleanUpRawObjectXML(String rawXMLForObject) {
-        rawXMLForObject = rawXMLForObject.replaceAll("(\\<\\?xml version=\"1\\.0\" encoding=\"UTF-16\"\\?>)", "");
-        rawXMLForObject = rawXMLForObject.trim();
-        rawXMLForObject = rawXMLForObject.replaceAll("(&amp;#x)(\\w+;)", "&#x$2");
-        return rawXMLForObject;
+    public List<String> parseXMLInFile(File inputFile) throws Exception {
+        return parseXMLInStream(openObjectFile(inputFile));
     }
 
-    public List<String> parseXMLInFile(File inputFile) throws Exception {
-        List<String> rawXMLObjects = new ArrayList<>();
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+    public List<String> parseXMLInStream(InputStream objectStream) throws Exception {
+        return new ArrayList<>(parseXMLInStreamById(objectStream).values());
+    }
 
-        InputStream wellFormedXML = addRootElementToXMLFile(inputFile);
+    // Objects by the id of the invocation in the comment that precedes them,
+    // or by their position in the file if they were captured without one
+    public Map<String, String> parseXMLInStreamById(InputStream objectStream) throws Exception {
+        return readAllObjects(new XMLObjectProfileReader(objectStream));
+    }
 
-        Document doc = dBuilder.parse(wellFormedXML);
+    // Convert length-prefixed binary object records back to the XML written in xml mode
+    public List<String> parseBinaryInFile(File inputFile) throws Exception {
+        return parseBinaryInStream(openObjectFile(inputFile));
+    }
 
-        DOMImplementationLS ls = (DOMImplementationLS) doc.getImplementation();
-        LSSerializer ser = ls.createLSSerializer();
+    public List<String> parseBinaryInStream(InputStream objectStream) throws Exception {
+        return new ArrayList<>(parseBinaryInStreamById(objectStream).values());
+    }
 
-        Node rootNode = doc.getDocumentElement();
-        rootNode.normalize();
-        NodeList childNodes = rootNode.getChildNodes();
+    // Every binary record starts with the id of its invocation
+    public Map<String, String> parseBinaryInStreamById(InputStream objectStream) throws Exception {
+        return readAllObjects(new BinaryObjectProfileReader(objectStream));
+    }
 
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node thisNode = childNodes.item(i);
-            String rawXMLForObject = ser.writeToString(thisNode);
-            rawXMLObjects.add(cleanUpRawObjectXML(rawXMLForObject));
+    private Map<String, String> readAllObjects(ObjectProfileReader objectReader) throws IOException {
+        Map<String, String> rawXMLObjects = new LinkedHashMap<>();
+        try (objectReader) {
+            Map.Entry<String, String> rawXMLForObject;
+            while ((rawXMLForObject = objectReader.next()) != null) {
+                rawXMLObjects.put(rawXMLForObject.getKey(), rawXMLForObject.getValue());
+            }
         }
-        rawXMLObjects.removeAll(Collections.singleton(""));
         return rawXMLObjects;
     }
 
-    // Create object profiles from object xml files
-    public Set<SerializedObject> parseXML(String basePath, InstrumentedMethod instrumentedMethod) {
-        String postfix = "";
-        try {
-            boolean hasParams = instrumentedMethod.hasParams();
-            if (hasParams) {
-                TestGeneratorUtil util = new TestGeneratorUtil();
-                postfix = util.getParamListPostFix(instrumentedMethod);
-            }
+    // Read the object file in whichever format and compression the objects were captured,
+    // from the object files of the method, or else from the invocation log in the same directory
+    public List<String> parseObjectFile(String basePath, String type) throws Exception {
+        return new ArrayList<>(parseObjectFileById(basePath, type).values());
+    }
 
-            // Get objects from xxx-receiving.xml
-            File receivingObjectFile = findXMLFileByObjectType(basePath, postfix + receivingObjectFilePostfix);
-            List<String> receivingObjects = parseXMLInFile(receivingObjectFile);
-            List<String> returnedOrReceivingPostObjects;
-
-            if (!instrumentedMethod.getReturnType().equals("void")) {
-                // Get objects from xxx-returned.xml for non-void methods
-                File returnedObjectFile = findXMLFileByObjectType(basePath, postfix + returnedObjectFilePostfix);
-                returnedOrReceivingPostObjects = parseXMLInFile(returnedObjectFile);
-            } else {
-                // Get objects from xxx-receiving-post.xml for void methods
-                File receivingPostObjectFile = findXMLFileByObjectType(basePath, postfix + receivingPostObjectFilePostfix);
-                returnedOrReceivingPostObjects = parseXMLInFile(receivingPostObjectFile);
+    public Map<String, String> parseObjectFileById(String basePath, String type) throws Exception {
+        return readAllObjects(openObjectProfileReader(basePath, type));
+    }
+
+    // Objects are read one at a time, the caller closes the reader
+    public ObjectProfileReader openObjectProfileReader(String basePath, String type) throws IOException {
+        String binaryType = type.replaceAll("\\.xml$", binaryObjectFileExtension);
+        List<String> candidateTypes = List.of(type, type + compressedObjectFileExtension,
+                binaryType, binaryType + compressedObjectFileExtension);
+        for (String candidateType : candidateTypes) {
+            File objectFile = findXMLFileByObjectType(basePath, candidateType);
+            if (objectFile.exists()) {
+                return openObjectProfileReader(openObjectFile(objectFile), candidateType);
             }
+        }
+        File baseFile = new File(basePath).getAbsoluteFile();
+        InvocationLogReader invocationLog = InvocationLogReader.forDirectory(baseFile.getParentFile());
+        for (String candidateType : candidateTypes) {
+            String objectFileName = baseFile.getName() + candidateType;
+            if (invocationLog.hasObjectFile(objectFileName)) {
+                return openObjectProfileReader(
+                        decompressIfNeeded(invocationLog.openObjectFile(objectFileName), objectFileName), candidateType);
+            }
+        }
+        // Fails with FileNotFoundException, so that the method is skipped
+        return new XMLObjectProfileReader(openObjectFile(findXMLFileByObjectType(basePath, type)));
+    }
+
+    private ObjectProfileReader openObjectProfileReader(InputStream objectStream, String type) throws IOException {
+        if (type.replace(compressedObjectFileExtension, "").endsWith(binaryObjectFileExtension)) {
+            return new BinaryObjectProfileReader(objectStream);
+        }
+        return new XMLObjectProfileReader(objectStream);
+    }
+
+    // Truncated objects can neither be replayed nor compared as they were
+    public boolean isTruncated(String rawXMLForObject) {
+        return rawXMLForObject != null && rawXMLForObject.contains(truncatedObjectMarker);
+    }
 
-            // Get objects from xxx-params.xml
-            List<String> paramObjects = new ArrayList<>();
+    // Objects of every invocation of the method, read from its object files as they are iterated
+    public SerializedObjectReader openSerializedObjects(String basePath, InstrumentedMethod instrumentedMethod)
+            throws IOException {
+        String postfix = "";
+        boolean hasParams = instrumentedMethod.hasParams();
+        if (hasParams) {
+            TestGeneratorUtil util = new TestGeneratorUtil();
+            postfix = util.getParamListPostFix(instrumentedMethod);
+        }
+        boolean isReturnTypeVoid = instrumentedMethod.getReturnType().equals("void");
+        List<ObjectProfileReader> objectReaders = new ArrayList<>();
+        try {
+            // Objects from xxx-receiving.xml
+            objectReaders.add(openObjectProfileReader(basePath, postfix + receivingObjectFilePostfix));
+            // Objects from xxx-returned.xml for non-void methods, from xxx-receiving-post.xml for void methods
+            objectReaders.add(openObjectProfileReader(basePath,
+                    postfix + (isReturnTypeVoid ? receivingPostObjectFilePostfix : returnedObjectFilePostfix)));
+            // Objects from xxx-params.xml
             if (hasParams) {
-                File paramObjectsFile = findXMLFileByObjectType(basePath, postfix + paramObjectsFilePostfix);
-                paramObjects = parseXMLInFile(paramObjectsFile);
+                objectReaders.add(openObjectProfileReader(basePath, postfix + paramObjectsFilePostfix));
             }
-
-            int serializedObjectCount = 0;
-            for (int i = 0; i < receivingObjects.size(); i++) {
-                if (!receivingObjects.get(i).isEmpty() && !returnedOrReceivingPostObjects.get(i).isEmpty()) {
-                    String params = hasParams ? paramObjects.get(i) : "";
-                    // Create object profiles from all serialized objects
-                    SerializedObject serializedObject = new SerializedObject(
-                            receivingObjects.get(i),
-                            (!instrumentedMethod.getReturnType().equals("void") ? returnedOrReceivingPostObjects.get(i) : ""),
-                            (instrumentedMethod.getReturnType().equals("void") ? returnedOrReceivingPostObjects.get(i) : ""),
-                            params);
-                    serializedObjects.add(serializedObject);
-                    serializedObjectCount++;
-                }
+        } catch (IOException e) {
+            for (ObjectProfileReader objectReader : objectReaders) {
+                objectReader.close();
             }
-            System.out.println("Number of pairs/triples of object values: " + serializedObjectCount);
+            throw e;
+        }
+        return new SerializedObjectReader(this, objectReaders.get(0), objectReaders.get(1),
+                hasParams ? objectReaders.get(2) : null, isReturnTypeVoid);
+    }
+
+    // Create object profiles from object xml files
+    public Set<SerializedObject> parseXML(String basePath, InstrumentedMethod instrumentedMethod) {
+        Set<SerializedObject> serializedObjects = new LinkedHashSet<>();
+        try (SerializedObjectReader serializedObjectReader = openSerializedObjects(basePath, instrumentedMethod)) {
+            serializedObjectReader.forEachRemaining(serializedObjects::add);
+            printCounts(serializedObjectReader);
         } catch (FileNotFoundException e) {
-          System.out.println("NO OBJECT FILES FOUND FOR " + basePath + " PARAMS" + postfix + " - SKIPPING");
+            System.out.println("NO OBJECT FILES FOUND FOR " + basePath + " - SKIPPING");
         } catch (Exception e) {
             e.printStackTrace();
         }
         return serializedObjects;
     }
+
+    public void printCounts(SerializedObjectReader serializedObjectReader) {
+        System.out.println("Number of pairs/triples of object values: " + serializedObjectReader.getSerializedObjectCount());
+        if (serializedObjectReader.getTruncatedInvocationCount() > 0) {
+            System.out.println("Skipped invocations with truncated objects: "
+                    + serializedObjectReader.getTruncatedInvocationCount());
+        }
+    }
 }
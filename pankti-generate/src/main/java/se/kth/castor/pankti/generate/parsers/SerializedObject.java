@@ -1,36 +1,44 @@
 package se.kth.castor.pankti.generate.parsers;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-
+/**
+ * The objects of one invocation. Invocations are equal if their fingerprints are.
+ */
 public class SerializedObject {
-    Map<String, String> receivingObject = new HashMap<>();
-    Map<String, String> returnedObject = new HashMap<>();
-    Map<String, String> receivingPostObject = new HashMap<>();
-    Map<String, String> paramObjects = new HashMap<>();
+    private final String receivingObject;
+    private final String returnedObject;
+    private final String receivingPostObject;
+    private final String paramObjects;
+    private ObjectFingerprint fingerprint;
 
     public SerializedObject(String receivingObject, String returnedObject, String receivingPostObject, String paramObjects) {
-        this.receivingObject.put("receivingObject", receivingObject);
-        this.returnedObject.put("returnedObject", returnedObject);
-        this.receivingPostObject.put("receivingPostObject", receivingPostObject);
-        this.paramObjects.put("paramObjects", paramObjects);
+        this.receivingObject = receivingObject;
+        this.returnedObject = returnedObject;
+        this.receivingPostObject = receivingPostObject;
+        this.paramObjects = paramObjects;
     }
 
     public String getReceivingObject() {
-        return this.receivingObject.get("receivingObject");
+        return this.receivingObject;
     }
 
     public String getParamObjects() {
-        return this.paramObjects.get("paramObjects");
+        return this.paramObjects;
     }
 
     public String getReturnedObject() {
-        return this.returnedObject.get("returnedObject");
+        return this.returnedObject;
     }
 
     public String getReceivingPostObject() {
-        return this.receivingPostObject.get("receivingPostObject");
+        return this.receivingPostObject;
+    }
+
+    // Computed once, in one pass over the objects
+    public ObjectFingerprint getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = ObjectFingerprint.of(receivingObject, returnedObject, receivingPostObject, paramObjects);
+        }
+        return fingerprint;
     }
 
     public String getObjectType(String objectXML) {
@@ -45,15 +53,12 @@ public class SerializedObject {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         SerializedObject that = (SerializedObject) o;
-        return receivingObject.equals(that.receivingObject) &&
-                returnedObject.equals(that.returnedObject) &&
-                receivingPostObject.equals(that.receivingPostObject) &&
-                paramObjects.equals(that.paramObjects);
+        return getFingerprint().equals(that.getFingerprint());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(receivingObject, returnedObject, paramObjects, receivingPostObject);
+        return getFingerprint().hashCode();
     }
 
     @Override
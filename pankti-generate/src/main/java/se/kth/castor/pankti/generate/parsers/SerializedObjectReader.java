@@ -0,0 +1,180 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Joins the objects of every invocation of a method while reading its object files,
+ * and yields each distinct invocation once, so that tests can be generated one invocation at a time.
+ * The files are driven by the returned (or receiving-post) objects, which are written when an
+ * invocation ends, after its receiving and params objects. Objects read past while looking for an
+ * invocation are kept until it ends, or until a later invocation of the same thread ends, so memory
+ * grows with the invocations that were running at the same time, not with the whole profile.
+ * Invocations that were not captured completely, e.g. because they threw, and invocations with
+ * objects truncated by the capture bounds, are skipped. The outer invocations of a recursive method
+ * cannot be told apart from invocations that threw, so they are skipped too once an inner one ends.
+ */
+public class SerializedObjectReader implements Iterator<SerializedObject>, Closeable {
+    private final ObjectXMLParser objectXMLParser;
+    private final ObjectProfileReader receivingObjectReader;
+    private final ObjectProfileReader returnedOrReceivingPostObjectReader;
+    // Null if the method has no parameters
+    private final ObjectProfileReader paramObjectReader;
+    private final boolean isReturnTypeVoid;
+    private final Map<String, String> pendingReceivingObjects = new HashMap<>();
+    private final Map<String, String> pendingParamObjects = new HashMap<>();
+    // Only the fingerprints of the invocations already yielded are kept
+    private final FingerprintSet uniqueFingerprints = new FingerprintSet();
+    private SerializedObject next;
+    private int serializedObjectCount;
+    private int truncatedInvocationCount;
+    private int incompleteInvocationCount;
+
+    public SerializedObjectReader(ObjectXMLParser objectXMLParser,
+                                  ObjectProfileReader receivingObjectReader,
+                                  ObjectProfileReader returnedOrReceivingPostObjectReader,
+                                  ObjectProfileReader paramObjectReader,
+                                  boolean isReturnTypeVoid) {
+        this.objectXMLParser = objectXMLParser;
+        this.receivingObjectReader = receivingObjectReader;
+        this.returnedOrReceivingPostObjectReader = returnedOrReceivingPostObjectReader;
+        this.paramObjectReader = paramObjectReader;
+        this.isReturnTypeVoid = isReturnTypeVoid;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public SerializedObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SerializedObject serializedObject = next;
+        next = null;
+        return serializedObject;
+    }
+
+    private SerializedObject readNext() throws IOException {
+        Map.Entry<String, String> returnedOrReceivingPostObject;
+        while ((returnedOrReceivingPostObject = returnedOrReceivingPostObjectReader.next()) != null) {
+            String invocationId = returnedOrReceivingPostObject.getKey();
+            String receivingObject = findObject(receivingObjectReader, pendingReceivingObjects, invocationId);
+            String params = paramObjectReader == null ? "" : findObject(paramObjectReader, pendingParamObjects, invocationId);
+            evictEarlierInvocationsOfSameThread(invocationId);
+            if (receivingObject == null || receivingObject.isEmpty() || params == null
+                    || returnedOrReceivingPostObject.getValue().isEmpty()) {
+                continue;
+            }
+            if (objectXMLParser.isTruncated(receivingObject) || objectXMLParser.isTruncated(returnedOrReceivingPostObject.getValue())
+                    || objectXMLParser.isTruncated(params)) {
+                truncatedInvocationCount++;
+                continue;
+            }
+            serializedObjectCount++;
+            SerializedObject serializedObject = new SerializedObject(
+                    receivingObject,
+                    (!isReturnTypeVoid ? returnedOrReceivingPostObject.getValue() : ""),
+                    (isReturnTypeVoid ? returnedOrReceivingPostObject.getValue() : ""),
+                    params);
+            if (uniqueFingerprints.add(serializedObject.getFingerprint())) {
+                return serializedObject;
+            }
+        }
+        return null;
+    }
+
+    // Reads ahead until the object of the invocation, keeping the objects of other invocations for later.
+    // Every thread writes these objects in the order of its invocations, so reading stops at a later
+    // invocation of the same thread if the object of this one is missing
+    private String findObject(ObjectProfileReader objectReader, Map<String, String> pendingObjects,
+                              String invocationId) throws IOException {
+        String pendingObject = pendingObjects.remove(invocationId);
+        if (pendingObject != null) {
+            return pendingObject;
+        }
+        Map.Entry<String, String> object;
+        while ((object = objectReader.next()) != null) {
+            if (object.getKey().equals(invocationId)) {
+                return object.getValue();
+            }
+            pendingObjects.put(object.getKey(), object.getValue());
+            if (isLaterInvocationOfSameThread(object.getKey(), invocationId)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Ids of a thread increase with every invocation, so the earlier invocations of the thread
+    // that are still pending when one ends will never end: they threw, or their objects were not written
+    private void evictEarlierInvocationsOfSameThread(String invocationId) {
+        Set<String> evictedInvocationIds = new HashSet<>();
+        for (Map<String, String> pendingObjects : List.of(pendingReceivingObjects, pendingParamObjects)) {
+            Iterator<String> pendingInvocationIds = pendingObjects.keySet().iterator();
+            while (pendingInvocationIds.hasNext()) {
+                String pendingInvocationId = pendingInvocationIds.next();
+                if (isLaterInvocationOfSameThread(invocationId, pendingInvocationId)) {
+                    pendingInvocationIds.remove();
+                    evictedInvocationIds.add(pendingInvocationId);
+                }
+            }
+        }
+        incompleteInvocationCount += evictedInvocationIds.size();
+    }
+
+    // Ids are made of the run (process id and start time), the thread id and a per-thread sequence number,
+    // or are positions such as #3 for objects captured without an id
+    static boolean isLaterInvocationOfSameThread(String laterInvocationId, String invocationId) {
+        int separator = invocationId.startsWith("#") ? 0 : invocationId.lastIndexOf('.');
+        int laterSeparator = laterInvocationId.startsWith("#") ? 0 : laterInvocationId.lastIndexOf('.');
+        if (separator < 0 || separator != laterSeparator
+                || !invocationId.regionMatches(0, laterInvocationId, 0, separator + 1)) {
+            return false;
+        }
+        try {
+            return Long.parseLong(laterInvocationId.substring(separator + 1))
+                    > Long.parseLong(invocationId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Invocations captured completely, including duplicates
+    public int getSerializedObjectCount() {
+        return serializedObjectCount;
+    }
+
+    public int getUniqueSerializedObjectCount() {
+        return uniqueFingerprints.size();
+    }
+
+    public int getTruncatedInvocationCount() {
+        return truncatedInvocationCount;
+    }
+
+    // Invocations whose receiving or params objects were evicted without ever being joined
+    public int getIncompleteInvocationCount() {
+        return incompleteInvocationCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (receivingObjectReader; returnedOrReceivingPostObjectReader) {
+            if (paramObjectReader != null) {
+                paramObjectReader.close();
+            }
+        }
+    }
+}
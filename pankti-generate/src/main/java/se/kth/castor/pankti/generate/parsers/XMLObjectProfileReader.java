@@ -0,0 +1,200 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pulls the top-level objects of an XML object file with StAX. Every object is written back
+ * as XML on its own, as the DOM serializer used to, with attributes sorted by name, empty
+ * elements closed as <e/>, and the control characters escaped by pankti-instrument restored.
+ * Objects are keyed by the id of the invocation in the comment that precedes them,
+ * or by their position in the file if they were captured without one.
+ */
+public class XMLObjectProfileReader implements ObjectProfileReader {
+    static final String invocationCommentPrefix = "invocation ";
+    static final String untaggedObjectPrefix = "#";
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private final InputStream objectStream;
+    private final XMLStreamReader reader;
+    private final StringBuilder xml = new StringBuilder();
+    private int objectCount;
+
+    public XMLObjectProfileReader(InputStream objectStream) throws IOException {
+        this.objectStream = objectStream;
+        // Object files are a sequence of objects, not one document
+        List<InputStream> streams = Arrays.asList(
+                new ByteArrayInputStream("<root>".getBytes()),
+                new BufferedInputStream(objectStream, 65536),
+                new ByteArrayInputStream("</root>".getBytes()));
+        try {
+            this.reader = inputFactory.createXMLStreamReader(new SequenceInputStream(Collections.enumeration(streams)));
+            reader.nextTag();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        return factory;
+    }
+
+    @Override
+    public Map.Entry<String, String> next() throws IOException {
+        try {
+            String invocationId = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.COMMENT) {
+                    String comment = reader.getText().trim();
+                    if (comment.startsWith(invocationCommentPrefix)) {
+                        invocationId = comment.substring(invocationCommentPrefix.length());
+                    }
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    String rawXMLForObject = readObject();
+                    String key = invocationId != null ? invocationId : untaggedObjectPrefix + objectCount;
+                    objectCount++;
+                    return new AbstractMap.SimpleImmutableEntry<>(key, rawXMLForObject);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    // The end of the synthetic root
+                    return null;
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Writes the element the reader is at and everything in it, and leaves the reader at its end
+    private String readObject() throws XMLStreamException {
+        xml.setLength(0);
+        int depth = 0;
+        boolean startTagOpen = false;
+        while (true) {
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (startTagOpen) {
+                        xml.append('>');
+                    }
+                    appendStartTag();
+                    startTagOpen = true;
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (startTagOpen) {
+                        xml.append("/>");
+                        startTagOpen = false;
+                    } else {
+                        xml.append("</").append(reader.getLocalName()).append('>');
+                    }
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.CDATA:
+                    if (reader.getTextLength() > 0) {
+                        if (startTagOpen) {
+                            xml.append('>');
+                            startTagOpen = false;
+                        }
+                        appendEscaped(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength(), false);
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    if (startTagOpen) {
+                        xml.append('>');
+                        startTagOpen = false;
+                    }
+                    xml.append("<!--").append(reader.getText()).append("-->");
+                    break;
+                default:
+                    break;
+            }
+            if (depth == 0) {
+                break;
+            }
+            reader.next();
+        }
+        return restoreEscapedCharacters(xml.toString());
+    }
+
+    private void appendStartTag() {
+        xml.append('<').append(reader.getLocalName());
+        int attributeCount = reader.getAttributeCount();
+        Integer[] attributes = new Integer[attributeCount];
+        for (int i = 0; i < attributeCount; i++) {
+            attributes[i] = i;
+        }
+        if (attributeCount > 1) {
+            Arrays.sort(attributes, Comparator.comparing(reader::getAttributeLocalName));
+        }
+        for (int attribute : attributes) {
+            String value = reader.getAttributeValue(attribute);
+            xml.append(' ').append(reader.getAttributeLocalName(attribute)).append("=\"");
+            appendEscaped(value.toCharArray(), 0, value.length(), true);
+            xml.append('"');
+        }
+    }
+
+    private void appendEscaped(char[] text, int start, int length, boolean inAttribute) {
+        for (int i = start; i < start + length; i++) {
+            char c = text[i];
+            switch (c) {
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '\r':
+                    xml.append("&#13;");
+                    break;
+                case '"':
+                    xml.append(inAttribute ? "&quot;" : "\"");
+                    break;
+                default:
+                    xml.append(c);
+            }
+        }
+    }
+
+    // pankti-instrument writes characters that XML 1.0 does not allow as &amp;#x..;
+    static String restoreEscapedCharacters(String rawXMLForObject) {
+        if (rawXMLForObject.contains("&amp;#x")) {
+            return rawXMLForObject.replaceAll("(&amp;#x)(\\w+;)", "&#x$2");
+        }
+        return rawXMLForObject;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            objectStream.close();
+        }
+    }
+}
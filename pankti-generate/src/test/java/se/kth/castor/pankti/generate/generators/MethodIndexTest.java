@@ -0,0 +1,49 @@
+package se.kth.castor.pankti.generate.generators;
+
+import org.junit.jupiter.api.Test;
+import se.kth.castor.pankti.generate.parsers.InstrumentedMethod;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtMethod;
+import spoon.support.compiler.VirtualFile;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MethodIndexTest {
+
+    private static MethodIndex indexFor(String source) {
+        Launcher launcher = new Launcher();
+        launcher.addInputResource(new VirtualFile(source, "B.java"));
+        launcher.getEnvironment().setNoClasspath(true);
+        CtModel model = launcher.buildModel();
+        return new MethodIndex(new TestGenerator("xml", 1).getTypesToProcess(model));
+    }
+
+    // Test that types nested at any depth are indexed, and that overloads are told apart by their parameter types
+    @Test
+    public void testMethodsAreFoundBySignature() {
+        MethodIndex methodIndex = indexFor("package a; public class B {"
+                + " public int get() { return 0; } public int get(int i) { return i; }"
+                + " public int get(String s) { return 1; } public void set(int i) { }"
+                + " static class C { class D { public void run() { } } } }");
+
+        Map.Entry<CtMethod<?>, Boolean> getString = methodIndex.findMethod(
+                new InstrumentedMethod("a.B", "get", List.of("java.lang.String"), "int", "public"));
+        assertEquals("s", getString.getKey().getParameters().get(0).getSimpleName());
+        assertTrue(getString.getValue());
+
+        Map.Entry<CtMethod<?>, Boolean> getUnmatched = methodIndex.findMethod(
+                new InstrumentedMethod("a.B", "get", List.of("long"), "int", "public"));
+        assertEquals(0, getUnmatched.getKey().getParameters().size());
+        assertFalse(getUnmatched.getValue());
+
+        assertFalse(methodIndex.findMethod(new InstrumentedMethod("a.B", "set", List.of("int"), "void", "public")).getValue());
+        assertNull(methodIndex.findMethod(new InstrumentedMethod("a.B", "missing", List.of(), "void", "public")));
+
+        assertNotNull(methodIndex.getType("a.B$C$D"));
+        assertNotNull(methodIndex.findMethod(new InstrumentedMethod("a.B$C$D", "run", List.of(), "void", "public")));
+    }
+}
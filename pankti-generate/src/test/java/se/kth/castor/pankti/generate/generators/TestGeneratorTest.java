@@ -0,0 +1,59 @@
+package se.kth.castor.pankti.generate.generators;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+import spoon.support.compiler.VirtualFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestGeneratorTest {
+
+    private static void writeObjects(Path directory, String fileName, String... objects) throws Exception {
+        StringBuilder objectFile = new StringBuilder();
+        for (int i = 0; i < objects.length; i++) {
+            objectFile.append("<!-- invocation 1.1.").append(i).append(" -->\n").append(objects[i]).append("\n");
+        }
+        Files.writeString(directory.resolve(fileName), objectFile.toString());
+    }
+
+    // Test that object files read on several threads give test methods added to the test classes in the order of the methods
+    @Test
+    public void testTestMethodsAreGeneratedConcurrently(@TempDir Path tempDir) throws Exception {
+        Launcher launcher = new Launcher();
+        launcher.addInputResource(new VirtualFile(
+                "package a; public class B { int x; public int get() { return x; } public void inc() { x++; } }", "B.java"));
+        launcher.addInputResource(new VirtualFile(
+                "package a; public class C { public String name() { return \"c\"; } }", "C.java"));
+        launcher.getEnvironment().setNoClasspath(true);
+        CtModel model = launcher.buildModel();
+
+        Files.writeString(tempDir.resolve("methods.csv"), "parent-FQN,method-name,param-list,return-type,visibility\n"
+                + "a.B,get,,int,public\na.C,name,,java.lang.String,public\na.B,inc,,void,public\na.B,missing,,void,public\n");
+        writeObjects(tempDir, "a.B.get-receiving.xml", "<a.B><x>1</x></a.B>", "<a.B><x>2</x></a.B>", "<a.B><x>1</x></a.B>");
+        writeObjects(tempDir, "a.B.get-returned.xml", "<int>1</int>", "<int>2</int>", "<int>1</int>");
+        writeObjects(tempDir, "a.B.inc-receiving.xml", "<a.B><x>1</x></a.B>");
+        writeObjects(tempDir, "a.B.inc-receiving-post.xml", "<a.B><x>2</x></a.B>");
+        writeObjects(tempDir, "a.C.name-receiving.xml", "<a.C/>");
+        writeObjects(tempDir, "a.C.name-returned.xml", "<string>c</string>");
+
+        TestGenerator testGenerator = new TestGenerator("xml", 4);
+        assertEquals(4, testGenerator.process(model, null, tempDir.resolve("methods.csv").toString(), tempDir.toString()));
+
+        CtClass<?> testClassB = launcher.getFactory().Class().get("a.TestBPanktiGen");
+        List<String> testMethodNamesB = testClassB.getMethods().stream()
+                .filter(method -> method.getSimpleName().startsWith("test"))
+                .map(CtMethod::getSimpleName)
+                .collect(Collectors.toList());
+        assertEquals(List.of("testGet1", "testGet2", "testInc1"), testMethodNamesB);
+        assertEquals(1, launcher.getFactory().Class().get("a.TestCPanktiGen").getMethodsByName("testName1").size());
+    }
+}
@@ -0,0 +1,38 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FingerprintSetTest {
+
+    // Test that fingerprints depend on the content and on where the objects are split
+    @Test
+    public void testFingerprintsOfObjects() {
+        assertEquals(ObjectFingerprint.of("<int>1</int>", "", "", "<object-array/>"),
+                ObjectFingerprint.of(new String("<int>1</int>"), "", "", "<object-array/>"));
+        assertNotEquals(ObjectFingerprint.of("<int>1</int>", "", "", ""),
+                ObjectFingerprint.of("<int>2</int>", "", "", ""));
+        assertNotEquals(ObjectFingerprint.of("ab", "c", "", ""), ObjectFingerprint.of("a", "bc", "", ""));
+        assertNotEquals(ObjectFingerprint.of("a", "", "", ""), ObjectFingerprint.of("", "a", "", ""));
+        assertEquals(new SerializedObject("<a.B/>", "<int>1</int>", "", ""),
+                new SerializedObject("<a.B/>", "<int>1</int>", "", ""));
+    }
+
+    // Test that the set keeps every fingerprint across resizes, including the all-zero one
+    @Test
+    public void testFingerprintsAreAddedOnce() {
+        FingerprintSet fingerprints = new FingerprintSet();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(fingerprints.add(new ObjectFingerprint(i / 100, i % 100)));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(fingerprints.add(new ObjectFingerprint(i / 100, i % 100)));
+            assertTrue(fingerprints.contains(new ObjectFingerprint(i / 100, i % 100)));
+        }
+        assertEquals(10000, fingerprints.size());
+        assertFalse(fingerprints.contains(new ObjectFingerprint(100, 0)));
+        assertTrue(fingerprints.add(new ObjectFingerprint(100, 0)));
+        assertEquals(10001, fingerprints.size());
+    }
+}
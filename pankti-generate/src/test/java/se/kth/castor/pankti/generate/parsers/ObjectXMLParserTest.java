@@ -1,11 +1,24 @@
 package se.kth.castor.pankti.generate.parsers;
 
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ObjectXMLParserTest {
 
@@ -16,4 +29,110 @@ public class ObjectXMLParserTest {
         List<String> numberOfObjects = objectXMLParser.parseXMLInFile(objectXMLFile);
         assertEquals(11, numberOfObjects.size());
     }
+
+    // Test that binary object records are read back as the same XML as xml object files
+    @Test
+    public void testObjectExtractionFromBinaryFile(@TempDir Path tempDir) throws Exception {
+        XStream xStream = new XStream();
+        Object[] objects = {new int[]{1, 2}, "pankti"};
+        File objectBinaryFile = tempDir.resolve("method-params.bin").toFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(objectBinaryFile))) {
+            for (Object object : objects) {
+                ByteArrayOutputStream record = new ByteArrayOutputStream();
+                new DataOutputStream(record).writeUTF("1.1." + object.hashCode());
+                xStream.marshal(object, new BinaryStreamWriter(record));
+                out.writeInt(record.size());
+                record.writeTo(out);
+            }
+        }
+        ObjectXMLParser objectXMLParser = new ObjectXMLParser();
+        List<String> binaryObjects = objectXMLParser.parseObjectFile(tempDir + File.separator + "method", "-params.xml");
+        assertEquals(2, binaryObjects.size());
+        assertEquals(xStream.toXML(objects[0]), binaryObjects.get(0));
+        assertEquals(xStream.toXML(objects[1]), binaryObjects.get(1));
+    }
+
+    // Test that compressed object files made of one gzip member per object are read transparently
+    @Test
+    public void testObjectExtractionFromCompressedFile(@TempDir Path tempDir) throws Exception {
+        String[] objects = {"<int>1</int>\n", "<string>pankti</string>\n"};
+        File compressedObjectFile = tempDir.resolve("method-returned.xml.gz").toFile();
+        try (FileOutputStream out = new FileOutputStream(compressedObjectFile)) {
+            for (String object : objects) {
+                GZIPOutputStream member = new GZIPOutputStream(out);
+                member.write(object.getBytes(StandardCharsets.UTF_8));
+                member.finish();
+            }
+        }
+        ObjectXMLParser objectXMLParser = new ObjectXMLParser();
+        List<String> compressedObjects = objectXMLParser.parseObjectFile(tempDir + File.separator + "method", "-returned.xml");
+        assertEquals(List.of("<int>1</int>", "<string>pankti</string>"), compressedObjects);
+    }
+
+    // Test that the objects of a method are read from the invocation log when it has no object files
+    @Test
+    public void testObjectExtractionFromInvocationLog(@TempDir Path tempDir) throws Exception {
+        StringBuilder index = new StringBuilder();
+        try (RandomAccessFile segment = new RandomAccessFile(tempDir.resolve("invocations-1-0.log").toFile(), "rw")) {
+            for (int i = 0; i < 3; i++) {
+                String methodFQN = i == 1 ? "a.B.other" : "a.B.method";
+                ByteArrayOutputStream record = new ByteArrayOutputStream();
+                DataOutputStream recordStream = new DataOutputStream(record);
+                recordStream.writeUTF(methodFQN);
+                recordStream.writeUTF("1.1." + i);
+                recordStream.writeUTF("main");
+                recordStream.writeShort(1);
+                byte[] object = ("<int>" + i + "</int>\n").getBytes(StandardCharsets.UTF_8);
+                recordStream.writeUTF(methodFQN + "-returned.xml");
+                recordStream.writeInt(object.length);
+                recordStream.write(object);
+                index.append(segment.getFilePointer()).append('\t').append(record.size()).append("\t1.1.").append(i)
+                        .append('\t').append(methodFQN).append("-returned.xml\n");
+                segment.writeInt(record.size());
+                segment.write(record.toByteArray());
+            }
+            // A record cut off when the instrumented process stopped
+            index.append(segment.getFilePointer()).append("\t100\t1.1.3\ta.B.method-returned.xml\n");
+            segment.writeInt(100);
+            segment.writeUTF("a.B.method");
+        }
+        Files.writeString(tempDir.resolve("invocations-1-0.idx"), index);
+        ObjectXMLParser objectXMLParser = new ObjectXMLParser();
+        List<String> loggedObjects = objectXMLParser.parseObjectFile(tempDir + File.separator + "a.B.method", "-returned.xml");
+        assertEquals(List.of("<int>0</int>", "<int>2</int>"), loggedObjects);
+    }
+
+    // Test that objects are joined by invocation id, whatever their order in the object files
+    @Test
+    public void testObjectsAreJoinedByInvocationId(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("a.B.method-receiving.xml"),
+                "<!-- invocation 1.1.0 -->\n<int>10</int>\n<!-- invocation 1.2.0 -->\n<int>11</int>\n"
+                        + "<!-- invocation 1.3.0 -->\n<int>20</int>\n");
+        // 1.2.0 ran on another thread and returned before 1.1.0, 1.3.0 threw
+        Files.writeString(tempDir.resolve("a.B.method-returned.xml"),
+                "<!-- invocation 1.2.0 -->\n<string>b</string>\n<!-- invocation 1.1.0 -->\n<string>a</string>\n");
+        ObjectXMLParser objectXMLParser = new ObjectXMLParser();
+        Set<SerializedObject> serializedObjects = objectXMLParser.parseXML(tempDir + File.separator + "a.B.method",
+                new InstrumentedMethod("a.B", "method", List.of(), "java.lang.String", "public"));
+        assertEquals(2, serializedObjects.size());
+        assertTrue(serializedObjects.contains(new SerializedObject("<int>10</int>", "<string>a</string>", "", "")));
+        assertTrue(serializedObjects.contains(new SerializedObject("<int>11</int>", "<string>b</string>", "", "")));
+    }
+
+    // Test that invocations with objects truncated by the capture bounds are skipped
+    @Test
+    public void testTruncatedInvocationsAreSkipped(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("a.B.method-receiving.xml"),
+                "<!-- invocation 1.1.0 -->\n<a.B><items pankti-truncated=\"elements\"><int>1</int></items></a.B>\n"
+                        + "<!-- invocation 1.1.1 -->\n<a.B><items><int>1</int></items></a.B>\n"
+                        + "<!-- invocation 1.1.2 -->\n<a.B><items><int>1</int></items></a.B>\n");
+        Files.writeString(tempDir.resolve("a.B.method-returned.xml"),
+                "<!-- invocation 1.1.0 -->\n<string>a</string>\n<!-- invocation 1.1.1 -->\n<string>b</string>\n"
+                        + "<!-- invocation 1.1.2 -->\n<a.C><next pankti-truncated=\"depth\"/></a.C>\n");
+        ObjectXMLParser objectXMLParser = new ObjectXMLParser();
+        Set<SerializedObject> serializedObjects = objectXMLParser.parseXML(tempDir + File.separator + "a.B.method",
+                new InstrumentedMethod("a.B", "method", List.of(), "java.lang.String", "public"));
+        assertEquals(Set.of(new SerializedObject("<a.B><items><int>1</int></items></a.B>", "<string>b</string>", "", "")),
+                serializedObjects);
+    }
 }
@@ -0,0 +1,93 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SerializedObjectReaderTest {
+
+    private static XMLObjectProfileReader readerFor(String objectFile) throws Exception {
+        return new XMLObjectProfileReader(new ByteArrayInputStream(objectFile.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<SerializedObject> readAll(SerializedObjectReader serializedObjectReader) {
+        List<SerializedObject> serializedObjects = new ArrayList<>();
+        serializedObjectReader.forEachRemaining(serializedObjects::add);
+        return serializedObjects;
+    }
+
+    // Test that objects of interleaved invocations are joined, and that duplicates are only yielded once
+    @Test
+    public void testInterleavedInvocationsAreJoined() throws Exception {
+        try (SerializedObjectReader serializedObjectReader = new SerializedObjectReader(new ObjectXMLParser(),
+                readerFor("<!-- invocation 1.1.0 -->\n<int>10</int>\n<!-- invocation 1.2.0 -->\n<int>20</int>\n"
+                        + "<!-- invocation 1.1.1 -->\n<int>10</int>\n"),
+                readerFor("<!-- invocation 1.2.0 -->\n<string>b</string>\n<!-- invocation 1.1.0 -->\n<string>a</string>\n"
+                        + "<!-- invocation 1.1.1 -->\n<string>a</string>\n"),
+                readerFor("<!-- invocation 1.1.0 -->\n<object-array/>\n<!-- invocation 1.2.0 -->\n<object-array/>\n"
+                        + "<!-- invocation 1.1.1 -->\n<object-array/>\n"),
+                false)) {
+            assertEquals(List.of(
+                    new SerializedObject("<int>20</int>", "<string>b</string>", "", "<object-array/>"),
+                    new SerializedObject("<int>10</int>", "<string>a</string>", "", "<object-array/>")),
+                    readAll(serializedObjectReader));
+            assertEquals(3, serializedObjectReader.getSerializedObjectCount());
+            assertEquals(2, serializedObjectReader.getUniqueSerializedObjectCount());
+        }
+    }
+
+    // Test that a missing object does not make the reader skip the objects of later invocations
+    @Test
+    public void testMissingObjectStopsAtLaterInvocationOfSameThread() throws Exception {
+        try (SerializedObjectReader serializedObjectReader = new SerializedObjectReader(new ObjectXMLParser(),
+                readerFor("<!-- invocation 1.1.1 -->\n<int>11</int>\n<!-- invocation 1.1.2 -->\n<int>12</int>\n"),
+                readerFor("<!-- invocation 1.1.0 -->\n<a.B/>\n<!-- invocation 1.1.1 -->\n<a.B/>\n"
+                        + "<!-- invocation 1.1.2 -->\n<a.C/>\n"),
+                null,
+                true)) {
+            assertEquals(List.of(
+                    new SerializedObject("<int>11</int>", "", "<a.B/>", ""),
+                    new SerializedObject("<int>12</int>", "", "<a.C/>", "")),
+                    readAll(serializedObjectReader));
+        }
+    }
+
+    // Test that invocations that threw are evicted once a later invocation of their thread returns
+    @Test
+    public void testInvocationsThatThrewAreEvicted() throws Exception {
+        // 1.1.0, 1.2.1 and 1.1.2 threw
+        String invocations = "<!-- invocation 1.1.0 -->\n<int>0</int>\n<!-- invocation 1.2.0 -->\n<int>1</int>\n"
+                + "<!-- invocation 1.1.1 -->\n<int>2</int>\n<!-- invocation 1.2.1 -->\n<int>3</int>\n"
+                + "<!-- invocation 1.1.2 -->\n<int>4</int>\n<!-- invocation 1.1.3 -->\n<int>5</int>\n"
+                + "<!-- invocation 1.2.2 -->\n<int>6</int>\n";
+        try (SerializedObjectReader serializedObjectReader = new SerializedObjectReader(new ObjectXMLParser(),
+                readerFor(invocations),
+                readerFor("<!-- invocation 1.2.0 -->\n<string>b</string>\n<!-- invocation 1.1.1 -->\n<string>c</string>\n"
+                        + "<!-- invocation 1.1.3 -->\n<string>f</string>\n<!-- invocation 1.2.2 -->\n<string>g</string>\n"),
+                readerFor(invocations),
+                false)) {
+            assertEquals(List.of(
+                    new SerializedObject("<int>1</int>", "<string>b</string>", "", "<int>1</int>"),
+                    new SerializedObject("<int>2</int>", "<string>c</string>", "", "<int>2</int>"),
+                    new SerializedObject("<int>5</int>", "<string>f</string>", "", "<int>5</int>"),
+                    new SerializedObject("<int>6</int>", "<string>g</string>", "", "<int>6</int>")),
+                    readAll(serializedObjectReader));
+            assertEquals(3, serializedObjectReader.getIncompleteInvocationCount());
+        }
+    }
+
+    @Test
+    public void testIsLaterInvocationOfSameThread() {
+        assertTrue(SerializedObjectReader.isLaterInvocationOfSameThread("4242.17.306", "4242.17.305"));
+        assertFalse(SerializedObjectReader.isLaterInvocationOfSameThread("4242.17.304", "4242.17.305"));
+        assertFalse(SerializedObjectReader.isLaterInvocationOfSameThread("4242.9.306", "4242.17.305"));
+        assertFalse(SerializedObjectReader.isLaterInvocationOfSameThread("4242.18.306", "4242.17.305"));
+        assertTrue(SerializedObjectReader.isLaterInvocationOfSameThread("#3", "#1"));
+        assertFalse(SerializedObjectReader.isLaterInvocationOfSameThread("#3", "4242.17.305"));
+    }
+}
@@ -0,0 +1,44 @@
+package se.kth.castor.pankti.generate.parsers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class XMLObjectProfileReaderTest {
+
+    private static XMLObjectProfileReader readerFor(String objectFile) throws Exception {
+        return new XMLObjectProfileReader(new ByteArrayInputStream(objectFile.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Test that objects are read one at a time, keyed by invocation id or else by position
+    @Test
+    public void testObjectsAreReadOneAtATime() throws Exception {
+        try (XMLObjectProfileReader reader = readerFor(
+                "<!-- invocation 1.1.0 -->\n<int>1</int>\n<string>a</string>\n<!-- invocation 1.1.2 -->\n<int>3</int>\n")) {
+            assertEquals(new AbstractMap.SimpleImmutableEntry<>("1.1.0", "<int>1</int>"), reader.next());
+            assertEquals(new AbstractMap.SimpleImmutableEntry<>("#1", "<string>a</string>"), reader.next());
+            assertEquals(new AbstractMap.SimpleImmutableEntry<>("1.1.2", "<int>3</int>"), reader.next());
+            assertNull(reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    // Test that objects are written back as the DOM serializer did, with the escaped control characters restored
+    @Test
+    public void testObjectsAreWrittenBackAsXML() throws Exception {
+        try (XMLObjectProfileReader reader = readerFor(
+                "<a.B z=\"1\" b=\"x&quot;y&lt;&amp;'\">\n  <s>t&gt;&lt;&amp;\"'&#xD; é &amp;#x1;</s>\n"
+                        + "  <e/>\n  <f></f>\n  <m_-n class=\"c\"><x reference=\"../..\"/></m_-n>\n</a.B>")) {
+            Map.Entry<String, String> object = reader.next();
+            assertEquals("<a.B b=\"x&quot;y&lt;&amp;'\" z=\"1\">\n  <s>t&gt;&lt;&amp;\"'&#13; é &#x1;</s>\n"
+                    + "  <e/>\n  <f/>\n  <m_-n class=\"c\"><x reference=\"../..\"/></m_-n>\n</a.B>", object.getValue());
+            assertNull(reader.next());
+        }
+    }
+}
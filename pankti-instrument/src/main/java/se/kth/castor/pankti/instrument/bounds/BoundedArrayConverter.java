@@ -0,0 +1,34 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.collections.ArrayConverter;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+import java.lang.reflect.Array;
+
+// Writes the first elements of object arrays, primitive arrays are left to their own converters
+public class BoundedArrayConverter extends ArrayConverter {
+    private final int maxElements;
+
+    public BoundedArrayConverter(Mapper mapper, int maxElements) {
+        super(mapper);
+        this.maxElements = maxElements;
+    }
+
+    @Override
+    public boolean canConvert(Class type) {
+        return super.canConvert(type) && !type.getComponentType().isPrimitive();
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        int length = Array.getLength(source);
+        if (length > maxElements) {
+            CaptureBounds.markTruncated(writer, "elements");
+        }
+        for (int i = 0; i < Math.min(length, maxElements); i++) {
+            writeCompleteItem(Array.get(source, i), context, writer);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.collections.CollectionConverter;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+import java.util.Collection;
+
+// Writes the first elements of the collections XStream writes as lists
+public class BoundedCollectionConverter extends CollectionConverter {
+    private final int maxElements;
+
+    public BoundedCollectionConverter(Mapper mapper, int maxElements) {
+        super(mapper);
+        this.maxElements = maxElements;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        Collection<?> collection = (Collection<?>) source;
+        if (collection.size() > maxElements) {
+            CaptureBounds.markTruncated(writer, "elements");
+        }
+        int remainingElements = maxElements;
+        for (Object item : collection) {
+            if (remainingElements-- == 0) {
+                break;
+            }
+            writeCompleteItem(item, context, writer);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.collections.MapConverter;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+import java.util.Map;
+
+// Writes the first entries of the maps XStream writes as entry lists
+public class BoundedMapConverter extends MapConverter {
+    private final int maxEntries;
+
+    public BoundedMapConverter(Mapper mapper, int maxEntries) {
+        super(mapper);
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        Map<?, ?> map = (Map<?, ?>) source;
+        if (map.size() > maxEntries) {
+            CaptureBounds.markTruncated(writer, "elements");
+        }
+        String entryName = mapper().serializedClass(Map.Entry.class);
+        int remainingEntries = maxEntries;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (remainingEntries-- == 0) {
+                break;
+            }
+            writer.startNode(entryName);
+            writeCompleteItem(entry.getKey(), context, writer);
+            writeCompleteItem(entry.getValue(), context, writer);
+            writer.endNode();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.converters.SingleValueConverterWrapper;
+import com.thoughtworks.xstream.core.ReferenceByXPathMarshaller;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+/**
+ * Leaves objects below the maximum depth, or past the maximum snapshot size, empty and marked.
+ * Values such as strings and numbers are always written, since they hold no further objects.
+ */
+public class BoundedMarshaller extends ReferenceByXPathMarshaller {
+    private final SizeCountingWriter sizeCountingWriter;
+    private final int maxDepth;
+    private final long maxSnapshotBytes;
+    private int depth;
+
+    public BoundedMarshaller(SizeCountingWriter writer, ConverterLookup converterLookup, Mapper mapper,
+                             int mode, CaptureBounds bounds) {
+        super(writer, converterLookup, mapper, mode);
+        this.sizeCountingWriter = writer;
+        this.maxDepth = bounds.getMaxDepth();
+        this.maxSnapshotBytes = bounds.getMaxSnapshotBytes();
+    }
+
+    @Override
+    public void convert(Object item, Converter converter) {
+        if (!isValue(item, converter)) {
+            if (maxDepth > 0 && depth > maxDepth) {
+                CaptureBounds.markTruncated(writer, "depth");
+                return;
+            }
+            if (maxSnapshotBytes > 0 && sizeCountingWriter.getSize() >= maxSnapshotBytes) {
+                CaptureBounds.markTruncated(writer, "size");
+                return;
+            }
+        }
+        depth++;
+        try {
+            super.convert(item, converter);
+        } finally {
+            depth--;
+        }
+    }
+
+    private boolean isValue(Object item, Converter converter) {
+        return converter instanceof SingleValueConverterWrapper || getMapper().isImmutableValueType(item.getClass());
+    }
+}
@@ -0,0 +1,26 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.core.ReferenceByXPathMarshallingStrategy;
+import com.thoughtworks.xstream.core.TreeMarshaller;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+/**
+ * The default XStream strategy (relative XPath references), with a marshaller that stops
+ * walking the object graph at the depth and size limits
+ */
+public class BoundedMarshallingStrategy extends ReferenceByXPathMarshallingStrategy {
+    private final CaptureBounds bounds;
+
+    public BoundedMarshallingStrategy(CaptureBounds bounds) {
+        super(RELATIVE);
+        this.bounds = bounds;
+    }
+
+    @Override
+    protected TreeMarshaller createMarshallingContext(HierarchicalStreamWriter writer,
+                                                      ConverterLookup converterLookup, Mapper mapper) {
+        return new BoundedMarshaller(new SizeCountingWriter(writer), converterLookup, mapper, RELATIVE, bounds);
+    }
+}
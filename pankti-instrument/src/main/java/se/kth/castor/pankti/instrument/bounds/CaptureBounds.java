@@ -0,0 +1,108 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.MapperWrapper;
+
+import java.util.*;
+
+/**
+ * Limits how much of the object graph reachable from a captured object is serialized:
+ * how deep it is walked, how many elements of collections, maps and arrays are written,
+ * roughly how many bytes a snapshot may take, and which fields of which types are left out.
+ * Parts cut off by a limit are marked with the {@value #TRUNCATED_ATTRIBUTE} attribute,
+ * which pankti-generate looks for. 0 means no limit.
+ */
+public class CaptureBounds {
+    public static final String TRUNCATED_ATTRIBUTE = "pankti-truncated";
+    public static final CaptureBounds UNBOUNDED = new CaptureBounds(0, 0, 0, Collections.emptyMap());
+
+    private final int maxDepth;
+    private final int maxCollectionElements;
+    private final long maxSnapshotBytes;
+    private final Map<String, Set<String>> omittedFields;
+
+    public CaptureBounds(int maxDepth, int maxCollectionElements, long maxSnapshotBytes,
+                         Map<String, Set<String>> omittedFields) {
+        this.maxDepth = Math.max(0, maxDepth);
+        this.maxCollectionElements = Math.max(0, maxCollectionElements);
+        this.maxSnapshotBytes = Math.max(0, maxSnapshotBytes);
+        this.omittedFields = omittedFields;
+    }
+
+    // Fields are listed as declaring.type.Name#field, separated by commas
+    public static Map<String, Set<String>> parseOmittedFields(String omittedFields) {
+        Map<String, Set<String>> fieldsByType = new HashMap<>();
+        if (omittedFields == null) {
+            return fieldsByType;
+        }
+        for (String omittedField : omittedFields.split(",")) {
+            String[] typeAndField = omittedField.trim().split("#");
+            if (typeAndField.length == 2 && !typeAndField[0].isEmpty() && !typeAndField[1].isEmpty()) {
+                fieldsByType.computeIfAbsent(typeAndField[0], type -> new HashSet<>()).add(typeAndField[1]);
+            }
+        }
+        return fieldsByType;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxCollectionElements() {
+        return maxCollectionElements;
+    }
+
+    public long getMaxSnapshotBytes() {
+        return maxSnapshotBytes;
+    }
+
+    public boolean isUnbounded() {
+        return maxDepth == 0 && maxCollectionElements == 0 && maxSnapshotBytes == 0 && omittedFields.isEmpty();
+    }
+
+    public XStream newXStream() {
+        if (isUnbounded()) {
+            return new XStream();
+        }
+        XStream xStream = omittedFields.isEmpty() ? new XStream() : newXStreamOmittingFields(omittedFields);
+        xStream.setMarshallingStrategy(new BoundedMarshallingStrategy(this));
+        if (maxCollectionElements > 0) {
+            xStream.registerConverter(new BoundedCollectionConverter(xStream.getMapper(), maxCollectionElements));
+            xStream.registerConverter(new BoundedMapConverter(xStream.getMapper(), maxCollectionElements));
+            xStream.registerConverter(new BoundedArrayConverter(xStream.getMapper(), maxCollectionElements));
+        }
+        return xStream;
+    }
+
+    // The mapper chain is only built in the XStream constructor
+    private static XStream newXStreamOmittingFields(Map<String, Set<String>> omittedFields) {
+        return new XStream() {
+            @Override
+            protected MapperWrapper wrapMapper(MapperWrapper next) {
+                return new OmittedFieldsMapper(next, omittedFields);
+            }
+        };
+    }
+
+    // Must be called before anything else is written to the node
+    static void markTruncated(HierarchicalStreamWriter writer, String reason) {
+        writer.addAttribute(TRUNCATED_ATTRIBUTE, reason);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CaptureBounds that = (CaptureBounds) o;
+        return maxDepth == that.maxDepth &&
+                maxCollectionElements == that.maxCollectionElements &&
+                maxSnapshotBytes == that.maxSnapshotBytes &&
+                omittedFields.equals(that.omittedFields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxDepth, maxCollectionElements, maxSnapshotBytes, omittedFields);
+    }
+}
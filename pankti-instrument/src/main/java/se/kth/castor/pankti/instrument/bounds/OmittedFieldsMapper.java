@@ -0,0 +1,23 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.mapper.Mapper;
+import com.thoughtworks.xstream.mapper.MapperWrapper;
+
+import java.util.Map;
+import java.util.Set;
+
+// Leaves out fields by the name of the type that declares them, without loading that type
+public class OmittedFieldsMapper extends MapperWrapper {
+    private final Map<String, Set<String>> omittedFields;
+
+    public OmittedFieldsMapper(Mapper wrapped, Map<String, Set<String>> omittedFields) {
+        super(wrapped);
+        this.omittedFields = omittedFields;
+    }
+
+    @Override
+    public boolean shouldSerializeMember(Class definedIn, String fieldName) {
+        Set<String> fields = definedIn == null ? null : omittedFields.get(definedIn.getName());
+        return (fields == null || !fields.contains(fieldName)) && super.shouldSerializeMember(definedIn, fieldName);
+    }
+}
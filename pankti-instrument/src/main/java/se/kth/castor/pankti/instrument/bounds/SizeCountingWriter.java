@@ -0,0 +1,44 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.WriterWrapper;
+
+/**
+ * Counts the characters of node names, attributes and values, as an estimate of
+ * the size of a snapshot that does not depend on the format it is encoded in
+ */
+public class SizeCountingWriter extends WriterWrapper {
+    private long size;
+
+    public SizeCountingWriter(HierarchicalStreamWriter wrapped) {
+        super(wrapped);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void startNode(String name) {
+        size += name.length();
+        super.startNode(name);
+    }
+
+    @Override
+    public void startNode(String name, Class clazz) {
+        size += name.length();
+        super.startNode(name, clazz);
+    }
+
+    @Override
+    public void addAttribute(String name, String value) {
+        size += name.length() + value.length();
+        super.addAttribute(name, value);
+    }
+
+    @Override
+    public void setValue(String text) {
+        size += text.length();
+        super.setValue(text);
+    }
+}
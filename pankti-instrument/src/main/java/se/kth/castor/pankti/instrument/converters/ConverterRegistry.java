@@ -0,0 +1,101 @@
+package se.kth.castor.pankti.instrument.converters;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import se.kth.castor.pankti.instrument.bounds.CaptureBounds;
+
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Hands every thread its own XStream, so that marshalling never contends on a shared instance.
+ * An XStream is never changed once built. Converters registered at runtime go to a new,
+ * immutable list (copy-on-write), and each thread rebuilds its XStream from the latest list
+ * the next time it asks for one.
+ * Files listing more omitted types, and the capture bounds, are set before the first invocation is captured.
+ */
+public class ConverterRegistry {
+    private final UnaryOperator<XStream> setUp;
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyList(), CaptureBounds.UNBOUNDED);
+    private final ThreadLocal<ThreadXStream> threadXStreams = new ThreadLocal<>();
+    private final Set<String> omittedTypesFiles = new HashSet<>();
+    private final Set<String> convertedClassNames = new HashSet<>();
+
+    // setUp registers the converters every XStream starts with
+    public ConverterRegistry(UnaryOperator<XStream> setUp) {
+        this.setUp = setUp;
+    }
+
+    public XStream getXStream() {
+        Snapshot current = snapshot;
+        ThreadXStream threadXStream = threadXStreams.get();
+        if (threadXStream == null || threadXStream.version != current.version) {
+            threadXStream = new ThreadXStream(current.version, build(current));
+            threadXStreams.set(threadXStream);
+        }
+        return threadXStream.xStream;
+    }
+
+    public synchronized void registerConverter(Converter converter) {
+        List<Converter> converters = new ArrayList<>(snapshot.runtimeConverters);
+        converters.add(converter);
+        snapshot = new Snapshot(snapshot.version + 1, Collections.unmodifiableList(converters), snapshot.bounds);
+    }
+
+    // Threads failing on the same class all register a converter for it, only the first one rebuilds the XStreams
+    public synchronized void registerConverter(String className, Converter converter) {
+        if (convertedClassNames.add(className)) {
+            registerConverter(converter);
+        }
+    }
+
+    // Every advice class sets the configured bounds, XStreams are only rebuilt if they change
+    public synchronized void setCaptureBounds(CaptureBounds bounds) {
+        if (!bounds.equals(snapshot.bounds)) {
+            snapshot = new Snapshot(snapshot.version + 1, snapshot.runtimeConverters, bounds);
+        }
+    }
+
+    // Every advice class registers the configured file, it is only read the first time
+    public synchronized void registerOmittedTypesFile(String omittedTypesFile) {
+        if (omittedTypesFile == null || omittedTypesFile.isBlank() || !omittedTypesFiles.add(omittedTypesFile)) {
+            return;
+        }
+        try {
+            registerConverter(OmittedTypeConverter.fromFile(Paths.get(omittedTypesFile.trim())));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private XStream build(Snapshot current) {
+        XStream xStream = setUp.apply(current.bounds.newXStream());
+        for (Converter converter : current.runtimeConverters) {
+            xStream.registerConverter(converter);
+        }
+        return xStream;
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final List<Converter> runtimeConverters;
+        private final CaptureBounds bounds;
+
+        Snapshot(long version, List<Converter> runtimeConverters, CaptureBounds bounds) {
+            this.version = version;
+            this.runtimeConverters = runtimeConverters;
+            this.bounds = bounds;
+        }
+    }
+
+    private static class ThreadXStream {
+        private final long version;
+        private final XStream xStream;
+
+        ThreadXStream(long version, XStream xStream) {
+            this.version = version;
+            this.xStream = xStream;
+        }
+    }
+}
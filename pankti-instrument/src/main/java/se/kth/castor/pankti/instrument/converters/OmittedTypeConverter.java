@@ -0,0 +1,120 @@
+package se.kth.castor.pankti.instrument.converters;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Omits objects whose state cannot be serialized or replayed, such as threads, class loaders,
+ * sockets, channels, locks and executors, like {@link ThreadConverter} does for threads.
+ * A type is omitted if it, one of its superclasses or one of its interfaces is listed,
+ * either by name or with a package prefix ending with ".*".
+ * Whether a type is omitted is only worked out once, and cached with the type.
+ */
+public class OmittedTypeConverter implements Converter {
+    public static final String DEFAULT_TYPES_RESOURCE = "/pankti-omitted-types.txt";
+
+    private final Set<String> typeNames = new HashSet<>();
+    private final List<String> packagePrefixes = new ArrayList<>();
+    private final ClassValue<Boolean> omittedTypes = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (isListed(type.getName())) {
+                return true;
+            }
+            if (type.getSuperclass() != null && get(type.getSuperclass())) {
+                return true;
+            }
+            for (Class<?> implementedInterface : type.getInterfaces()) {
+                if (get(implementedInterface)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    public OmittedTypeConverter(Collection<String> types) {
+        for (String type : types) {
+            if (type.endsWith(".*")) {
+                packagePrefixes.add(type.substring(0, type.length() - 1));
+            } else {
+                typeNames.add(type);
+            }
+        }
+    }
+
+    // The types bundled with the plugin
+    public static OmittedTypeConverter fromDefaults() {
+        try (InputStream typesStream = OmittedTypeConverter.class.getResourceAsStream(DEFAULT_TYPES_RESOURCE)) {
+            if (typesStream == null) {
+                return new OmittedTypeConverter(Collections.emptyList());
+            }
+            return new OmittedTypeConverter(parseTypes(
+                    new BufferedReader(new InputStreamReader(typesStream, StandardCharsets.UTF_8))));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new OmittedTypeConverter(Collections.emptyList());
+        }
+    }
+
+    public static OmittedTypeConverter fromFile(Path typesFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(typesFile)) {
+            return new OmittedTypeConverter(parseTypes(reader));
+        }
+    }
+
+    // One type per line, blank lines and lines starting with # are ignored
+    static List<String> parseTypes(BufferedReader reader) throws IOException {
+        List<String> types = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                types.add(line);
+            }
+        }
+        return types;
+    }
+
+    public boolean isOmitted(Class<?> type) {
+        return type != null && omittedTypes.get(type);
+    }
+
+    private boolean isListed(String typeName) {
+        if (typeNames.contains(typeName)) {
+            return true;
+        }
+        for (String packagePrefix : packagePrefixes) {
+            if (typeName.startsWith(packagePrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void marshal(Object o, HierarchicalStreamWriter hierarchicalStreamWriter, MarshallingContext marshallingContext) {
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader hierarchicalStreamReader, UnmarshallingContext unmarshallingContext) {
+        return null;
+    }
+
+    @Override
+    public boolean canConvert(Class aClass) {
+        return isOmitted(aClass);
+    }
+}
@@ -0,0 +1,184 @@
+package se.kth.castor.pankti.instrument.counters;
+
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+import se.kth.castor.pankti.instrument.plugins.CaptureConfig;
+
+import javax.management.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the invocation counts of all instrumented methods in memory.
+ * Counts are flushed periodically and at shutdown to a single file, with one
+ * "method-FQN TAB count" line per method, and are exposed as attributes of the
+ * se.kth.castor.pankti:type=InvocationCounts MBean, which Glowroot can show live.
+ * In memory capture mode, counts are only written when MemoryCaptureStore dumps.
+ */
+public class InvocationCountRegistry implements DynamicMBean {
+    public static final String MBEAN_NAME = "se.kth.castor.pankti:type=InvocationCounts";
+    private static final String TOTAL_ATTRIBUTE = "TotalInvocationCount";
+
+    private final Path countsFilePath;
+    // Counts found in the counts file when the registry was created, from a previous run
+    private final Map<String, Long> previousCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public InvocationCountRegistry(Path countsFilePath) {
+        this.countsFilePath = countsFilePath;
+        loadPreviousCounts();
+    }
+
+    public static InvocationCountRegistry getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public LongAdder register(String methodFQN) {
+        return counters.computeIfAbsent(methodFQN, k -> new LongAdder());
+    }
+
+    public long getCount(String methodFQN) {
+        LongAdder counter = counters.get(methodFQN);
+        return previousCounts.getOrDefault(methodFQN, 0L) + (counter == null ? 0L : counter.sum());
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> counts = new TreeMap<>(previousCounts);
+        counters.forEach((methodFQN, counter) -> counts.merge(methodFQN, counter.sum(), Long::sum));
+        return counts;
+    }
+
+    // Write to a temporary file first, so that readers never see a partially written counts file
+    public synchronized void flush() {
+        try {
+            Files.createDirectories(countsFilePath.getParent());
+            Path tempFilePath = countsFilePath.resolveSibling(countsFilePath.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFilePath, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> entry : snapshot().entrySet()) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFilePath, countsFilePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void loadPreviousCounts() {
+        if (!Files.exists(countsFilePath)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(countsFilePath, StandardCharsets.UTF_8)) {
+                int separator = line.lastIndexOf('\t');
+                if (separator > 0) {
+                    previousCounts.put(line.substring(0, separator),
+                            Long.parseLong(line.substring(separator + 1).trim()));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (attribute.equals(TOTAL_ATTRIBUTE)) {
+            return snapshot().values().stream().mapToLong(Long::longValue).sum();
+        }
+        if (!counters.containsKey(attribute) && !previousCounts.containsKey(attribute)) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return getCount(attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Invocation counts are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList attributeList = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                attributeList.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException ignored) {
+            }
+        }
+        return attributeList;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("flush")) {
+            flush();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Long> counts = snapshot();
+        MBeanAttributeInfo[] attributeInfos = new MBeanAttributeInfo[counts.size() + 1];
+        attributeInfos[0] = new MBeanAttributeInfo(TOTAL_ATTRIBUTE, "long",
+                "Invocations of all instrumented methods", true, false, false);
+        int i = 1;
+        for (String methodFQN : counts.keySet()) {
+            attributeInfos[i++] = new MBeanAttributeInfo(methodFQN, "long",
+                    "Invocations of " + methodFQN, true, false, false);
+        }
+        MBeanOperationInfo flushInfo = new MBeanOperationInfo("flush",
+                "Write the invocation counts to file", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Invocation counts of instrumented methods",
+                attributeInfos, null, new MBeanOperationInfo[]{flushInfo}, null);
+    }
+
+    private static class InstanceHolder {
+        private static final InvocationCountRegistry INSTANCE = createInstance();
+
+        private static InvocationCountRegistry createInstance() {
+            InvocationCountRegistry registry = new InvocationCountRegistry(
+                    Paths.get(AdviceTemplate.storageDir, AdviceTemplate.invocationCountsFileName));
+            if (!CaptureConfig.getInstance().isMemoryCaptureEnabled()) {
+                scheduleFlushes(registry);
+            }
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(registry, new ObjectName(MBEAN_NAME));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return registry;
+        }
+
+        private static void scheduleFlushes(InvocationCountRegistry registry) {
+            long flushIntervalSeconds = CaptureConfig.getInstance().getInvocationCountFlushIntervalSeconds();
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pankti-invocation-count-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(registry::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(registry::flush, "pankti-invocation-count-shutdown"));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package se.kth.castor.pankti.instrument.counters;
+
+import java.time.Instant;
+
+/**
+ * Creates ids that are unique across all invocations of all runs, made of the process id and
+ * the start time of the JVM, the id of the invoking thread and a per-thread sequence number,
+ * e.g. 4242-1602853200000.17.305. Object files are appended to across runs, and containers
+ * often run every JVM with the same process id, so the process id alone does not tell runs apart.
+ * The sequence is thread-local, so no state is shared between application threads.
+ */
+public class InvocationIdGenerator {
+    private static final String processPrefix = ProcessHandle.current().pid() + "-" + getStartMillis() + ".";
+    private static final ThreadLocal<long[]> sequence = ThreadLocal.withInitial(() -> new long[1]);
+
+    public static String nextId() {
+        long[] threadSequence = sequence.get();
+        return processPrefix + Thread.currentThread().getId() + "." + threadSequence[0]++;
+    }
+
+    // The start time is not available on every platform, the time this class is loaded is close enough
+    private static long getStartMillis() {
+        return ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElseGet(System::currentTimeMillis);
+    }
+}
@@ -0,0 +1,43 @@
+package se.kth.castor.pankti.instrument.dedup;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distinct (receiving object, parameters) state of a method, the invocation it was
+ * captured with, and how many captured invocations had that state
+ */
+public class CapturedState {
+    // Returned when deduplication is disabled, or when a state cannot be tracked
+    static final CapturedState UNTRACKED = new CapturedState(new StateHash(0L, 0L), "");
+
+    private final StateHash stateHash;
+    private final String invocationId;
+    private final LongAdder multiplicity = new LongAdder();
+
+    CapturedState(StateHash stateHash, String invocationId) {
+        this.stateHash = stateHash;
+        this.invocationId = invocationId;
+        this.multiplicity.increment();
+    }
+
+    // False if deduplication is disabled, or if the state cannot be tracked
+    public boolean isTracked() {
+        return this != UNTRACKED;
+    }
+
+    public StateHash getStateHash() {
+        return stateHash;
+    }
+
+    public String getInvocationId() {
+        return invocationId;
+    }
+
+    public long getMultiplicity() {
+        return multiplicity.sum();
+    }
+
+    void increment() {
+        multiplicity.increment();
+    }
+}
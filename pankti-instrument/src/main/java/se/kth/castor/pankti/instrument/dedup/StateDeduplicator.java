@@ -0,0 +1,94 @@
+package se.kth.castor.pankti.instrument.dedup;
+
+import com.thoughtworks.xstream.XStream;
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Skips invocations of a method whose receiving object and parameters have already been
+ * captured. States are compared by a 128-bit structural hash computed through XStream,
+ * before anything is serialized, and repeats only increment the multiplicity of the captured state.
+ * The hash is not a cheap check: XStream walks the whole object graph of every state it hashes,
+ * as it would to serialize it, so only invocations that passed the sampler are hashed.
+ * At most maxStates distinct states are tracked, further states are always captured.
+ */
+public class StateDeduplicator {
+    private final String methodFQN;
+    private final ConverterRegistry converterRegistry;
+    private final int maxStates;
+    private final Map<StateHash, CapturedState> statesByHash = new ConcurrentHashMap<>();
+
+    // A maximum of 0 disables deduplication
+    public StateDeduplicator(String methodFQN, ConverterRegistry converterRegistry, int maxStates) {
+        this.methodFQN = methodFQN;
+        this.converterRegistry = converterRegistry;
+        this.maxStates = maxStates;
+    }
+
+    public boolean isEnabled() {
+        return maxStates > 0;
+    }
+
+    public String getMethodFQN() {
+        return methodFQN;
+    }
+
+    // Marshals both objects, only without building a document
+    public StateHash hashState(Object receivingObject, Object parameterObjects) {
+        StateHashWriter writer = new StateHashWriter();
+        XStream xStream = converterRegistry.getXStream();
+        xStream.marshal(receivingObject, writer);
+        xStream.marshal(parameterObjects, writer);
+        return writer.getHash();
+    }
+
+    // Returns the state to capture this invocation with, or null if the state was already captured.
+    // Only new states get an invocation id, repeats are not captured
+    public CapturedState registerState(Object receivingObject, Object parameterObjects,
+                                       Supplier<String> newInvocationId) {
+        if (!isEnabled()) {
+            return CapturedState.UNTRACKED;
+        }
+        StateHash stateHash;
+        try {
+            stateHash = hashState(receivingObject, parameterObjects);
+        } catch (Exception e) {
+            // Reported when the objects are serialized
+            return CapturedState.UNTRACKED;
+        }
+        CapturedState state = statesByHash.get(stateHash);
+        if (state == null) {
+            if (statesByHash.size() >= maxStates) {
+                return CapturedState.UNTRACKED;
+            }
+            CapturedState newState = new CapturedState(stateHash, newInvocationId.get());
+            state = statesByHash.putIfAbsent(stateHash, newState);
+            if (state == null) {
+                return newState;
+            }
+        }
+        state.increment();
+        return null;
+    }
+
+    // Called when the invocation a state was registered with is not written after all,
+    // so that the next invocation with the same state is captured instead
+    public void forget(CapturedState state) {
+        if (state.isTracked()) {
+            statesByHash.remove(state.getStateHash(), state);
+        }
+    }
+
+    // Multiplicities by the id of the invocation each state was captured with
+    public Map<String, Long> getMultiplicities() {
+        Map<String, Long> multiplicities = new TreeMap<>();
+        for (CapturedState state : statesByHash.values()) {
+            multiplicities.put(state.getInvocationId(), state.getMultiplicity());
+        }
+        return multiplicities;
+    }
+}
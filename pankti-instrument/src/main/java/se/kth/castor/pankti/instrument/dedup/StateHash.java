@@ -0,0 +1,41 @@
+package se.kth.castor.pankti.instrument.dedup;
+
+/**
+ * 128-bit structural hash of a state, made of two 64-bit hashes with independent constants.
+ * Distinct states are only taken for repeats if both halves collide.
+ */
+public final class StateHash {
+    private final long high;
+    private final long low;
+
+    public StateHash(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StateHash that = (StateHash) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) low;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
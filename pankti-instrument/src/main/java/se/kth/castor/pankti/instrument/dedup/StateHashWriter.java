@@ -0,0 +1,85 @@
+package se.kth.castor.pankti.instrument.dedup;
+
+import com.thoughtworks.xstream.io.AbstractWriter;
+
+/**
+ * Receives the same events XStream would turn into XML, and folds them into a 128-bit
+ * hash instead of building a document: a 64-bit FNV-1a hash and a second 64-bit hash
+ * with independent constants, as in pankti-generate's ObjectFingerprint. Equal objects,
+ * as written by the registered converters, hash the same. Nothing is allocated per event,
+ * but XStream still walks the whole object graph, so hashing costs as much as marshalling.
+ * AbstractWriter supplies the typed startNode XStream's own writer wrappers call.
+ */
+public class StateHashWriter extends AbstractWriter {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_SEED = 0x9e3779b97f4a7c15L;
+    private static final long MIX_MULTIPLIER_1 = 0x87c37b91114253d5L;
+    private static final long MIX_MULTIPLIER_2 = 0x4cf5ad432745937fL;
+    private static final char START_NODE = '<';
+    private static final char END_NODE = '>';
+    private static final char ATTRIBUTE = '=';
+    private static final char VALUE = '"';
+
+    private long fnvHash = FNV_OFFSET_BASIS;
+    private long mixHash = MIX_SEED;
+
+    public StateHash getHash() {
+        return new StateHash(finalizeHash(fnvHash), finalizeHash(mixHash));
+    }
+
+    private void update(char c) {
+        fnvHash = (fnvHash ^ c) * FNV_PRIME;
+        mixHash = Long.rotateLeft(mixHash ^ (c * MIX_MULTIPLIER_1), 31) * MIX_MULTIPLIER_2;
+    }
+
+    // Spreads every input bit over the whole hash, as in MurmurHash3
+    private static long finalizeHash(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private void update(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            update(text.charAt(i));
+        }
+        // Separate strings, so that "ab" + "c" and "a" + "bc" differ
+        update('\0');
+    }
+
+    @Override
+    public void startNode(String name) {
+        update(START_NODE);
+        update(name);
+    }
+
+    @Override
+    public void addAttribute(String name, String value) {
+        update(ATTRIBUTE);
+        update(name);
+        update(value);
+    }
+
+    @Override
+    public void setValue(String text) {
+        update(VALUE);
+        update(text);
+    }
+
+    @Override
+    public void endNode() {
+        update(END_NODE);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
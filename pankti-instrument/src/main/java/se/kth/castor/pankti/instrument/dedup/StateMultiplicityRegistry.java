@@ -0,0 +1,105 @@
+package se.kth.castor.pankti.instrument.dedup;
+
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+import se.kth.castor.pankti.instrument.plugins.CaptureConfig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes how many captured invocations had each distinct state, periodically and at shutdown,
+ * with one "method-FQN TAB invocation-id TAB multiplicity" line per captured state.
+ * Lines written by previous runs are kept.
+ * In memory capture mode, multiplicities are only written when MemoryCaptureStore dumps.
+ */
+public class StateMultiplicityRegistry {
+    public static final String multiplicitiesFileName = "state-multiplicities.txt";
+
+    private final Path multiplicitiesFilePath;
+    private final List<String> previousLines = new ArrayList<>();
+    private final List<StateDeduplicator> deduplicators = new CopyOnWriteArrayList<>();
+
+    public StateMultiplicityRegistry(Path multiplicitiesFilePath) {
+        this.multiplicitiesFilePath = multiplicitiesFilePath;
+        try {
+            if (Files.exists(multiplicitiesFilePath)) {
+                previousLines.addAll(Files.readAllLines(multiplicitiesFilePath, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static StateMultiplicityRegistry getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public StateDeduplicator register(StateDeduplicator deduplicator) {
+        if (deduplicator.isEnabled()) {
+            deduplicators.add(deduplicator);
+        }
+        return deduplicator;
+    }
+
+    // Write to a temporary file first, so that readers never see a partially written file
+    public synchronized void flush() {
+        if (deduplicators.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(multiplicitiesFilePath.getParent());
+            Path tempFilePath = multiplicitiesFilePath.resolveSibling(multiplicitiesFilePath.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFilePath, StandardCharsets.UTF_8)) {
+                for (String line : previousLines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                for (StateDeduplicator deduplicator : deduplicators) {
+                    for (Map.Entry<String, Long> entry : deduplicator.getMultiplicities().entrySet()) {
+                        writer.write(deduplicator.getMethodFQN() + "\t" + entry.getKey() + "\t" + entry.getValue());
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(tempFilePath, multiplicitiesFilePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class InstanceHolder {
+        private static final StateMultiplicityRegistry INSTANCE = createInstance();
+
+        private static StateMultiplicityRegistry createInstance() {
+            StateMultiplicityRegistry registry = new StateMultiplicityRegistry(
+                    Paths.get(AdviceTemplate.storageDir, multiplicitiesFileName));
+            if (!CaptureConfig.getInstance().isMemoryCaptureEnabled()) {
+                scheduleFlushes(registry);
+            }
+            return registry;
+        }
+
+        private static void scheduleFlushes(StateMultiplicityRegistry registry) {
+            long flushIntervalSeconds = CaptureConfig.getInstance().getInvocationCountFlushIntervalSeconds();
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pankti-state-multiplicity-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(registry::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(registry::flush, "pankti-state-multiplicity-shutdown"));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes objects with XStream's binary driver, as records made of a 4-byte length followed by
+ * the invocation id (in DataOutput's modified UTF-8) and the binary stream. The same converters
+ * are used as for XML, only the stream format differs. pankti-generate reads these records back as XML.
+ */
+public class BinaryProfileEncoder implements ObjectProfileEncoder {
+    private final ConverterRegistry converterRegistry;
+    private final ThreadLocal<EncodingBuffer> buffers = ThreadLocal.withInitial(EncodingBuffer::new);
+
+    public BinaryProfileEncoder(ConverterRegistry converterRegistry) {
+        this.converterRegistry = converterRegistry;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".bin";
+    }
+
+    @Override
+    public EncodingBuffer encodeToBuffer(Object object, String invocationId) throws IOException {
+        EncodingBuffer buffer = buffers.get();
+        buffer.reset();
+        // The length is filled in once the record is written
+        buffer.ensureCapacity(Integer.BYTES);
+        buffer.advance(Integer.BYTES);
+        new DataOutputStream(buffer).writeUTF(invocationId);
+        BinaryStreamWriter writer = new BinaryStreamWriter(buffer);
+        converterRegistry.getXStream().marshal(object, writer);
+        writer.flush();
+        buffer.writeIntAt(0, buffer.size() - Integer.BYTES);
+        return buffer;
+    }
+}
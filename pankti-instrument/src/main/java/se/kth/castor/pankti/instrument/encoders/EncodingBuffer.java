@@ -0,0 +1,75 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that encoders reuse on each thread. Its content is only valid
+ * until the next object is encoded on the same thread, so callers either write it out
+ * right away or copy it. Buffers that grew for a large object graph are released
+ * instead of being kept for the lifetime of the thread.
+ */
+public class EncodingBuffer extends OutputStream {
+    private static final int initialCapacity = 8192;
+    private static final int maxRetainedCapacity = 1024 * 1024;
+
+    private byte[] bytes = new byte[initialCapacity];
+    private int size;
+
+    public void reset() {
+        if (bytes.length > maxRetainedCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] array() {
+        return bytes;
+    }
+
+    // Make room for at least the given number of bytes after the current content
+    public void ensureCapacity(int additionalBytes) {
+        int required = size + additionalBytes;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+
+    // Account for bytes written directly into the array
+    public void advance(int count) {
+        size += count;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, bytes, size, len);
+        size += len;
+    }
+
+    public void writeIntAt(int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
@@ -0,0 +1,58 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses each encoded object as its own gzip member. Concatenated members form a valid
+ * gzip stream, so a whole file can be read with a single GZIPInputStream, and every member
+ * can also be decompressed on its own starting from its offset in the file.
+ * The deflater and the output buffer are reused by each thread.
+ */
+public class GzipProfileEncoder implements ObjectProfileEncoder {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final ObjectProfileEncoder delegate;
+    private final ThreadLocal<EncodingBuffer> buffers = ThreadLocal.withInitial(EncodingBuffer::new);
+    private final ThreadLocal<Deflater> deflaters =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    public GzipProfileEncoder(ObjectProfileEncoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return delegate.getFileExtension() + ".gz";
+    }
+
+    @Override
+    public EncodingBuffer encodeToBuffer(Object object, String invocationId) throws Exception {
+        EncodingBuffer encodedObject = delegate.encodeToBuffer(object, invocationId);
+        EncodingBuffer buffer = buffers.get();
+        buffer.reset();
+        buffer.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(encodedObject.array(), 0, encodedObject.size());
+        deflater.finish();
+        while (!deflater.finished()) {
+            buffer.ensureCapacity(Math.max(512, encodedObject.size() / 8));
+            buffer.advance(deflater.deflate(buffer.array(), buffer.size(), buffer.array().length - buffer.size()));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(encodedObject.array(), 0, encodedObject.size());
+        writeIntLittleEndian(buffer, (int) crc.getValue());
+        writeIntLittleEndian(buffer, encodedObject.size());
+        return buffer;
+    }
+
+    private static void writeIntLittleEndian(EncodingBuffer buffer, int value) {
+        buffer.write(value);
+        buffer.write(value >>> 8);
+        buffer.write(value >>> 16);
+        buffer.write(value >>> 24);
+    }
+}
@@ -0,0 +1,31 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+
+/**
+ * Turns a captured object into the bytes appended to its object profile file.
+ * Each encoded object is self-contained and tagged with the id of its invocation,
+ * so files can be read back one object at a time and joined by invocation.
+ */
+public interface ObjectProfileEncoder {
+    String getFileExtension();
+
+    // The returned buffer belongs to the calling thread and is reused for its next object
+    EncodingBuffer encodeToBuffer(Object object, String invocationId) throws Exception;
+
+    default byte[] encode(Object object, String invocationId) throws Exception {
+        return encodeToBuffer(object, invocationId).toByteArray();
+    }
+
+    static ObjectProfileEncoder forFormat(String format, boolean compressed, ConverterRegistry converterRegistry) {
+        ObjectProfileEncoder encoder = forFormat(format, converterRegistry);
+        return compressed ? new GzipProfileEncoder(encoder) : encoder;
+    }
+
+    static ObjectProfileEncoder forFormat(String format, ConverterRegistry converterRegistry) {
+        if (format != null && format.trim().equalsIgnoreCase("binary")) {
+            return new BinaryProfileEncoder(converterRegistry);
+        }
+        return new XMLProfileEncoder(converterRegistry);
+    }
+}
@@ -0,0 +1,66 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import com.thoughtworks.xstream.core.util.QuickWriter;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+
+import java.io.Writer;
+
+/**
+ * PrettyPrintWriter that escapes text the way XStream's quirks mode does, except that
+ * character references are written as "&amp;#x...;" so that they survive parsing in
+ * pankti-generate. Escaping is done in the same pass that writes the text.
+ */
+public class ProfileXMLWriter extends PrettyPrintWriter {
+    private static final String CHARACTER_REFERENCE_START = "&amp;#x";
+
+    public ProfileXMLWriter(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    protected void writeText(QuickWriter writer, String text) {
+        writeEscaped(writer, text, false);
+    }
+
+    @Override
+    protected void writeAttributeValue(QuickWriter writer, String text) {
+        writeEscaped(writer, text, true);
+    }
+
+    private static void writeEscaped(QuickWriter writer, String text, boolean isAttribute) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                case '\'':
+                    writer.write("&apos;");
+                    break;
+                case '\t':
+                case '\n':
+                    if (!isAttribute) {
+                        writer.write(c);
+                        break;
+                    }
+                default:
+                    if (c != '\0' && c != '\r' && Character.isDefined(c) && !Character.isISOControl(c)) {
+                        writer.write(c);
+                    } else {
+                        writer.write(CHARACTER_REFERENCE_START);
+                        writer.write(Integer.toHexString(c));
+                        writer.write(';');
+                    }
+            }
+        }
+    }
+}
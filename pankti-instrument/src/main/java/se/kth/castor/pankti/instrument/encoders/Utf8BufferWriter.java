@@ -0,0 +1,89 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import java.io.Writer;
+
+/**
+ * Encodes characters as UTF-8 straight into an EncodingBuffer,
+ * without an intermediate String or CharsetEncoder buffers
+ */
+public class Utf8BufferWriter extends Writer {
+    private EncodingBuffer buffer;
+    // High surrogate waiting for its low surrogate, across write calls
+    private char pendingHighSurrogate;
+
+    public Utf8BufferWriter reset(EncodingBuffer buffer) {
+        this.buffer = buffer;
+        this.pendingHighSurrogate = 0;
+        return this;
+    }
+
+    @Override
+    public void write(int c) {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) {
+        buffer.ensureCapacity(len);
+        for (int i = off; i < off + len; i++) {
+            writeChar(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String str) {
+        write(str, 0, str.length());
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        buffer.ensureCapacity(len);
+        for (int i = off; i < off + len; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    private void writeChar(char c) {
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer.write(0xf0 | (codePoint >> 18));
+                buffer.write(0x80 | ((codePoint >> 12) & 0x3f));
+                buffer.write(0x80 | ((codePoint >> 6) & 0x3f));
+                buffer.write(0x80 | (codePoint & 0x3f));
+                return;
+            }
+            buffer.write('?');
+        }
+        if (c < 0x80) {
+            buffer.write(c);
+        } else if (c < 0x800) {
+            buffer.write(0xc0 | (c >> 6));
+            buffer.write(0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            // Unpaired, like String.getBytes
+            buffer.write('?');
+        } else {
+            buffer.write(0xe0 | (c >> 12));
+            buffer.write(0x80 | ((c >> 6) & 0x3f));
+            buffer.write(0x80 | (c & 0x3f));
+        }
+    }
+
+    // XStream flushes whenever its own buffer is full, which may split a surrogate pair
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            buffer.write('?');
+        }
+    }
+}
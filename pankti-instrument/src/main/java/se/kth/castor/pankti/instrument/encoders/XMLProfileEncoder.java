@@ -0,0 +1,42 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+
+/**
+ * Writes objects as XStream XML, one document after the other,
+ * each preceded by an "invocation ID" comment.
+ * XStream streams into a buffer reused by the thread, so no String of the document is built.
+ */
+public class XMLProfileEncoder implements ObjectProfileEncoder {
+    private static final String invocationCommentStart = "<!-- invocation ";
+    private static final String invocationCommentEnd = " -->\n";
+
+    private final ConverterRegistry converterRegistry;
+    private final ThreadLocal<EncodingBuffer> buffers = ThreadLocal.withInitial(EncodingBuffer::new);
+    private final ThreadLocal<Utf8BufferWriter> writers = ThreadLocal.withInitial(Utf8BufferWriter::new);
+
+    public XMLProfileEncoder(ConverterRegistry converterRegistry) {
+        this.converterRegistry = converterRegistry;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".xml";
+    }
+
+    @Override
+    public EncodingBuffer encodeToBuffer(Object object, String invocationId) {
+        EncodingBuffer buffer = buffers.get();
+        buffer.reset();
+        Utf8BufferWriter writer = writers.get().reset(buffer);
+        writer.write(invocationCommentStart);
+        writer.write(invocationId);
+        writer.write(invocationCommentEnd);
+        ProfileXMLWriter xmlWriter = new ProfileXMLWriter(writer);
+        converterRegistry.getXStream().marshal(object, xmlWriter);
+        xmlWriter.flush();
+        writer.close();
+        buffer.write('\n');
+        return buffer;
+    }
+}
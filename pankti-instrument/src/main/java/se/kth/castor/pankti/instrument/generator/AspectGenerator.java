@@ -0,0 +1,276 @@
+package se.kth.castor.pankti.instrument.generator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Lists the methods in the CSV file of instrumentation candidates from pankti-extract in the
+ * method table read by MethodTable, and generates a few advice classes whose pointcuts match
+ * those methods by class and method name. Woven methods are resolved to their id in the table
+ * when they are woven. The advice classes are listed in glowroot.plugin.json, replacing the ones
+ * generated before. Only depends on the JDK, so that it can run before the plugin is compiled:
+ * java src/main/java/se/kth/castor/pankti/instrument/generator/AspectGenerator.java candidates.csv
+ */
+public class AspectGenerator {
+    static final String PLUGINS_PACKAGE = "se.kth.castor.pankti.instrument.plugins";
+    static final String ASPECT_CLASS_PREFIX = "MethodAspect";
+    static final String METHOD_TABLE_FILE_NAME = "pankti-instrumented-methods.tsv";
+    // Keeps the pointcut patterns far below the limit of 65535 bytes for a string constant
+    static final int MAX_PATTERN_LENGTH = 16000;
+    private static final String DEFAULT_PLUGINS_DIR = "./src/main/java/se/kth/castor/pankti/instrument/plugins";
+    private static final String DEFAULT_PLUGIN_JSON = "./src/main/resources/META-INF/glowroot.plugin.json";
+    // MethodAspect0 is the hand-written example, generated advice classes are numbered from 1
+    private static final Pattern generatedAspectFileName = Pattern.compile(ASPECT_CLASS_PREFIX + "[1-9]\\d*\\.java");
+    private static final Pattern aspectList = Pattern.compile("(\"aspects\"\\s*:\\s*\\[)[^\\]]*(\\])");
+
+    private final Path pluginsDir;
+    private final Path pluginJson;
+
+    // The method table is written next to glowroot.plugin.json
+    public AspectGenerator(Path pluginsDir, Path pluginJson) {
+        this.pluginsDir = pluginsDir;
+        this.pluginJson = pluginJson;
+    }
+
+    // Returns the number of generated advice classes
+    public int generate(Path candidatesCSVFile) throws IOException {
+        List<Map<String, String>> candidates = parseCSV(Files.readAllLines(candidatesCSVFile, StandardCharsets.UTF_8));
+        Files.write(pluginJson.resolveSibling(METHOD_TABLE_FILE_NAME), generateMethodTable(candidates), StandardCharsets.UTF_8);
+        deleteGeneratedAspects();
+        List<String> aspectClassNames = new ArrayList<>();
+        List<Map<String, Set<String>>> pointcuts = groupIntoPointcuts(candidates);
+        for (int i = 0; i < pointcuts.size(); i++) {
+            int count = i + 1;
+            Files.writeString(pluginsDir.resolve(ASPECT_CLASS_PREFIX + count + ".java"),
+                    generateAspect(count, pointcuts.get(i)), StandardCharsets.UTF_8);
+            aspectClassNames.add(PLUGINS_PACKAGE + "." + ASPECT_CLASS_PREFIX + count);
+        }
+        String json = Files.readString(pluginJson, StandardCharsets.UTF_8);
+        Files.writeString(pluginJson, updateAspectList(json, aspectClassNames), StandardCharsets.UTF_8);
+        return pointcuts.size();
+    }
+
+    private void deleteGeneratedAspects() throws IOException {
+        try (DirectoryStream<Path> aspectFiles = Files.newDirectoryStream(pluginsDir,
+                path -> generatedAspectFileName.matcher(path.getFileName().toString()).matches())) {
+            for (Path aspectFile : aspectFiles) {
+                Files.delete(aspectFile);
+            }
+        }
+    }
+
+    // The id of a method is its line number: id, class name, method name, parameter types, void, invoked-methods.csv row
+    static List<String> generateMethodTable(List<Map<String, String>> candidates) {
+        List<String> lines = new ArrayList<>();
+        for (int methodId = 0; methodId < candidates.size(); methodId++) {
+            Map<String, String> candidate = candidates.get(methodId);
+            lines.add(String.join("\t",
+                    String.valueOf(methodId),
+                    candidate.get("parent-FQN"),
+                    candidate.get("method-name"),
+                    String.join(",", parseParamList(candidate.getOrDefault("param-list", ""))),
+                    String.valueOf("void".equals(candidate.get("return-type"))),
+                    toInvokedMethodsRow(candidate).replace('\t', ' ')));
+        }
+        return lines;
+    }
+
+    // Method names by class name, split so that the patterns of each pointcut stay short
+    static List<Map<String, Set<String>>> groupIntoPointcuts(List<Map<String, String>> candidates) {
+        Map<String, Set<String>> methodNamesByClass = new LinkedHashMap<>();
+        for (Map<String, String> candidate : candidates) {
+            methodNamesByClass.computeIfAbsent(candidate.get("parent-FQN"), className -> new TreeSet<>())
+                    .add(candidate.get("method-name"));
+        }
+        List<Map<String, Set<String>>> pointcuts = new ArrayList<>();
+        Map<String, Set<String>> pointcut = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> methodNames : methodNamesByClass.entrySet()) {
+            Map<String, Set<String>> extendedPointcut = new LinkedHashMap<>(pointcut);
+            extendedPointcut.put(methodNames.getKey(), methodNames.getValue());
+            if (!pointcut.isEmpty() && (classNamePattern(extendedPointcut).length() > MAX_PATTERN_LENGTH
+                    || methodNamePattern(extendedPointcut).length() > MAX_PATTERN_LENGTH)) {
+                pointcuts.add(pointcut);
+                extendedPointcut = new LinkedHashMap<>();
+                extendedPointcut.put(methodNames.getKey(), methodNames.getValue());
+            }
+            pointcut = extendedPointcut;
+        }
+        if (!pointcut.isEmpty()) {
+            pointcuts.add(pointcut);
+        }
+        return pointcuts;
+    }
+
+    static String classNamePattern(Map<String, Set<String>> pointcut) {
+        return String.join("|", pointcut.keySet());
+    }
+
+    static String methodNamePattern(Map<String, Set<String>> pointcut) {
+        Set<String> methodNames = new TreeSet<>();
+        pointcut.values().forEach(methodNames::addAll);
+        return String.join("|", methodNames);
+    }
+
+    static String generateAspect(int count, Map<String, Set<String>> pointcut) {
+        return "package " + PLUGINS_PACKAGE + ";\n" +
+                "\n" +
+                "import org.glowroot.agent.plugin.api.OptionalThreadContext;\n" +
+                "import org.glowroot.agent.plugin.api.weaving.*;\n" +
+                "\n" +
+                "public class " + ASPECT_CLASS_PREFIX + count + " {\n" +
+                "    @Pointcut(className = \"" + escape(classNamePattern(pointcut)) + "\",\n" +
+                "            methodName = \"" + escape(methodNamePattern(pointcut)) + "\",\n" +
+                "            methodParameterTypes = {\"..\"})\n" +
+                "    public static class TargetMethodAdvice {\n" +
+                "        @OnBefore\n" +
+                "        public static Invocation onBefore(OptionalThreadContext context,\n" +
+                "                                          @BindReceiver Object receivingObject,\n" +
+                "                                          @BindParameterArray Object parameterObjects,\n" +
+                "                                          @BindMethodName String methodName,\n" +
+                "                                          @BindMethodMeta MethodMeta methodMeta) {\n" +
+                "            return methodMeta.onBefore(context, receivingObject, parameterObjects, methodName);\n" +
+                "        }\n" +
+                "\n" +
+                "        @OnReturn\n" +
+                "        public static void onReturn(@BindOptionalReturn OptionalReturn optionalReturn,\n" +
+                "                                    @BindReceiver Object receivingObject,\n" +
+                "                                    @BindMethodMeta MethodMeta methodMeta,\n" +
+                "                                    @BindTraveler Invocation invocation) {\n" +
+                "            methodMeta.onReturn(optionalReturn, receivingObject, invocation);\n" +
+                "        }\n" +
+                "\n" +
+                "        @OnThrow\n" +
+                "        public static void onThrow(@BindThrowable Throwable throwable,\n" +
+                "                                   @BindMethodMeta MethodMeta methodMeta,\n" +
+                "                                   @BindTraveler Invocation invocation) {\n" +
+                "            methodMeta.onThrow(throwable, invocation);\n" +
+                "        }\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    // The param-list column holds a list such as [int, java.lang.String[]], type variables T become Object
+    static List<String> parseParamList(String paramList) {
+        String trimmed = paramList.trim();
+        if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1);
+        }
+        List<String> paramTypes = new ArrayList<>();
+        for (String paramType : trimmed.split(",")) {
+            paramType = paramType.trim();
+            if (paramType.isEmpty()) {
+                continue;
+            }
+            if (paramType.equals("T") || paramType.startsWith("T[")) {
+                paramType = "java.lang.Object" + paramType.substring(1);
+            }
+            paramTypes.add(paramType);
+        }
+        return paramTypes;
+    }
+
+    // The row written to invoked-methods.csv, values with commas are quoted and stripped of spaces
+    static String toInvokedMethodsRow(Map<String, String> candidate) {
+        List<String> values = new ArrayList<>();
+        for (String value : candidate.values()) {
+            values.add(value.contains(",") ? "\"" + value.replace(" ", "") + "\"" : value);
+        }
+        return String.join(",", values);
+    }
+
+    static String updateAspectList(String json, List<String> aspectClassNames) {
+        String aspects = aspectClassNames.stream()
+                .map(aspectClassName -> "    \"" + aspectClassName + "\"")
+                .collect(Collectors.joining(",\n"));
+        Matcher matcher = aspectList.matcher(json);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("No aspects list in glowroot.plugin.json");
+        }
+        String replacement = matcher.group(1) + "\n" + (aspects.isEmpty() ? "" : aspects + "\n") + "  " + matcher.group(2);
+        return json.substring(0, matcher.start()) + replacement + json.substring(matcher.end());
+    }
+
+    // RFC 4180 records by header, as written by pankti-extract
+    static List<Map<String, String>> parseCSV(List<String> lines) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (String line : lines) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                field.append('\n');
+                continue;
+            }
+            record.add(field.toString());
+            field.setLength(0);
+            if (!(record.size() == 1 && record.get(0).isEmpty())) {
+                records.add(record);
+            }
+            record = new ArrayList<>();
+        }
+
+        List<Map<String, String>> candidates = new ArrayList<>();
+        if (records.isEmpty()) {
+            return candidates;
+        }
+        List<String> headers = records.get(0);
+        for (List<String> values : records.subList(1, records.size())) {
+            Map<String, String> candidate = new LinkedHashMap<>();
+            for (int i = 0; i < headers.size(); i++) {
+                candidate.put(headers.get(i), i < values.size() ? values.get(i) : "");
+            }
+            candidates.add(candidate);
+        }
+        return candidates;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("USAGE: AspectGenerator </path/to/instrumentation/candidate/list>.csv "
+                    + "[plugins source directory] [glowroot.plugin.json]");
+            System.exit(1);
+        }
+        AspectGenerator generator = new AspectGenerator(
+                Paths.get(args.length > 1 ? args[1] : DEFAULT_PLUGINS_DIR),
+                Paths.get(args.length > 2 ? args[2] : DEFAULT_PLUGIN_JSON));
+        try {
+            int aspectCount = generator.generate(Paths.get(args[0]));
+            System.out.println(aspectCount + " aspect classes generated in " + PLUGINS_PACKAGE);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
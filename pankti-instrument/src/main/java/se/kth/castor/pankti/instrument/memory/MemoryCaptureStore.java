@@ -0,0 +1,156 @@
+package se.kth.castor.pankti.instrument.memory;
+
+import se.kth.castor.pankti.instrument.counters.InvocationCountRegistry;
+import se.kth.castor.pankti.instrument.dedup.StateMultiplicityRegistry;
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+import se.kth.castor.pankti.instrument.plugins.CaptureConfig;
+import se.kth.castor.pankti.instrument.writers.InvokedMethodsRegistry;
+import se.kth.castor.pankti.instrument.writers.ObjectProfileRecord;
+import se.kth.castor.pankti.instrument.writers.ObjectProfileSink;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the records of every instrumented method in its own ring buffer in memory capture mode,
+ * so that nothing is written to disk until a dump. A dump writes the buffered records through
+ * the same sink as async capture mode, so that pankti-generate reads them as usual, and empties
+ * the buffers. The invocation counts, state multiplicities and invoked-methods.csv rows, also
+ * only kept in memory in this mode, are written with them. Dumps are triggered by the dump operation of the se.kth.castor.pankti:type=MemoryCapture
+ * MBean, by creating the dump trigger file, and at shutdown.
+ */
+public class MemoryCaptureStore implements MemoryCaptureStoreMBean {
+    public static final String MBEAN_NAME = "se.kth.castor.pankti:type=MemoryCapture";
+    private static final long triggerFilePollIntervalSeconds = 1;
+
+    private final List<RecordRingBuffer> ringBuffers = new CopyOnWriteArrayList<>();
+    private final int recordsPerMethod;
+    private final long bytesPerMethod;
+    private final Supplier<ObjectProfileSink> sinkFactory;
+    // Writes everything else kept in memory until a dump
+    private final Runnable registryDump;
+
+    public MemoryCaptureStore(int recordsPerMethod, long bytesPerMethod, Supplier<ObjectProfileSink> sinkFactory) {
+        this(recordsPerMethod, bytesPerMethod, sinkFactory, () -> { });
+    }
+
+    public MemoryCaptureStore(int recordsPerMethod, long bytesPerMethod, Supplier<ObjectProfileSink> sinkFactory,
+                              Runnable registryDump) {
+        this.recordsPerMethod = recordsPerMethod;
+        this.bytesPerMethod = bytesPerMethod;
+        this.sinkFactory = sinkFactory;
+        this.registryDump = registryDump;
+    }
+
+    public static MemoryCaptureStore getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    // Evicted records are handed to the listener, so that their states can be captured again
+    public RecordRingBuffer newRingBuffer(String methodFQN, Consumer<ObjectProfileRecord> evictionListener) {
+        RecordRingBuffer ringBuffer = new RecordRingBuffer(methodFQN, recordsPerMethod, bytesPerMethod, evictionListener);
+        ringBuffers.add(ringBuffer);
+        return ringBuffer;
+    }
+
+    @Override
+    public synchronized int dump() {
+        int dumpedInvocations = 0;
+        ObjectProfileSink sink = sinkFactory.get();
+        try {
+            for (RecordRingBuffer ringBuffer : ringBuffers) {
+                for (ObjectProfileRecord record : ringBuffer.drain()) {
+                    sink.write(record);
+                    dumpedInvocations++;
+                }
+            }
+        } finally {
+            sink.close();
+        }
+        registryDump.run();
+        return dumpedInvocations;
+    }
+
+    // Dumps if the trigger file exists, and deletes it so that the next dump needs a new trigger
+    public boolean dumpIfTriggered(Path triggerFile) {
+        try {
+            if (Files.deleteIfExists(triggerFile)) {
+                dump();
+                return true;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public long getBufferedInvocations() {
+        return ringBuffers.stream().mapToLong(RecordRingBuffer::size).sum();
+    }
+
+    @Override
+    public long getBufferedBytes() {
+        return ringBuffers.stream().mapToLong(RecordRingBuffer::getBytes).sum();
+    }
+
+    @Override
+    public long getEvictedInvocations() {
+        return ringBuffers.stream().mapToLong(RecordRingBuffer::getEvictedRecords).sum();
+    }
+
+    private static class InstanceHolder {
+        private static final MemoryCaptureStore INSTANCE = createInstance();
+
+        private static MemoryCaptureStore createInstance() {
+            CaptureConfig config = CaptureConfig.getInstance();
+            MemoryCaptureStore store = new MemoryCaptureStore(
+                    config.getMemoryBufferRecordsPerMethod(),
+                    config.getMemoryBufferBytesPerMethod(),
+                    InstanceHolder::newObjectProfileSink,
+                    InstanceHolder::dumpRegistries);
+            Path triggerFile = Paths.get(config.getDumpTriggerFile());
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pankti-memory-capture-dump-trigger");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> store.dumpIfTriggered(triggerFile),
+                    triggerFilePollIntervalSeconds, triggerFilePollIntervalSeconds, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(store::dump, "pankti-memory-capture-shutdown"));
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(store, new ObjectName(MBEAN_NAME));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return store;
+        }
+
+        // Nothing has created the storage directory before the first dump
+        private static ObjectProfileSink newObjectProfileSink() {
+            try {
+                Files.createDirectories(Paths.get(AdviceTemplate.storageDir));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return CaptureConfig.getInstance().newObjectProfileSink();
+        }
+
+        private static void dumpRegistries() {
+            InvocationCountRegistry.getInstance().flush();
+            StateMultiplicityRegistry.getInstance().flush();
+            InvokedMethodsRegistry.getInstance().flush();
+        }
+    }
+}
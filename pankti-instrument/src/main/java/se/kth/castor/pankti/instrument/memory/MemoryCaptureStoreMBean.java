@@ -0,0 +1,15 @@
+package se.kth.castor.pankti.instrument.memory;
+
+/**
+ * Management interface of the se.kth.castor.pankti:type=MemoryCapture MBean
+ */
+public interface MemoryCaptureStoreMBean {
+    // Returns the number of invocations written
+    int dump();
+
+    long getBufferedInvocations();
+
+    long getBufferedBytes();
+
+    long getEvictedInvocations();
+}
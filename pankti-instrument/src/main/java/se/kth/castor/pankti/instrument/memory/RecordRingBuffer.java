@@ -0,0 +1,96 @@
+package se.kth.castor.pankti.instrument.memory;
+
+import se.kth.castor.pankti.instrument.writers.ObjectProfileRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The latest records of one instrumented method, kept in memory until they are dumped.
+ * Holds at most a fixed number of records and of encoded bytes, evicting the oldest records first.
+ * A byte limit of 0 or less means that only the number of records is limited.
+ */
+public class RecordRingBuffer {
+    private final String methodFQN;
+    private final ObjectProfileRecord[] records;
+    private final long maxBytes;
+    private final Consumer<ObjectProfileRecord> evictionListener;
+    // Index of the oldest record
+    private int head;
+    private int size;
+    private long bytes;
+    private long evictedRecords;
+
+    public RecordRingBuffer(String methodFQN, int capacity, long maxBytes,
+                            Consumer<ObjectProfileRecord> evictionListener) {
+        this.methodFQN = methodFQN;
+        this.records = new ObjectProfileRecord[Math.max(0, capacity)];
+        this.maxBytes = maxBytes;
+        this.evictionListener = evictionListener;
+    }
+
+    // Returns false if the record alone does not fit in the buffer
+    public synchronized boolean add(ObjectProfileRecord record) {
+        long recordBytes = sizeOf(record);
+        if (records.length == 0 || (maxBytes > 0 && recordBytes > maxBytes)) {
+            evictedRecords++;
+            return false;
+        }
+        while (size == records.length || (maxBytes > 0 && bytes + recordBytes > maxBytes)) {
+            evictOldest();
+        }
+        records[(head + size) % records.length] = record;
+        size++;
+        bytes += recordBytes;
+        return true;
+    }
+
+    private void evictOldest() {
+        ObjectProfileRecord evicted = records[head];
+        records[head] = null;
+        head = (head + 1) % records.length;
+        size--;
+        bytes -= sizeOf(evicted);
+        evictedRecords++;
+        evictionListener.accept(evicted);
+    }
+
+    // Removes all records, oldest first
+    public synchronized List<ObjectProfileRecord> drain() {
+        List<ObjectProfileRecord> drained = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % records.length;
+            drained.add(records[index]);
+            records[index] = null;
+        }
+        head = 0;
+        size = 0;
+        bytes = 0L;
+        return drained;
+    }
+
+    public String getMethodFQN() {
+        return methodFQN;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getEvictedRecords() {
+        return evictedRecords;
+    }
+
+    static long sizeOf(ObjectProfileRecord record) {
+        long recordBytes = 0L;
+        for (byte[] encodedObject : record.getEncodedObjectByFilePath().values()) {
+            recordBytes += encodedObject.length;
+        }
+        return recordBytes;
+    }
+}
@@ -5,55 +5,77 @@ import se.kth.castor.pankti.instrument.converters.*;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
 public interface AdviceTemplate {
-    XStream xStream = new XStream();
+    String storageDir = "/tmp/pankti-object-data/";
+    String invocationCountsFileName = "invocation-counts.txt";
+    String invokedMethodsFileName = "invoked-methods.csv";
+    // Bundled types that are omitted without ever failing to serialize them
+    OmittedTypeConverter omittedTypeConverter = OmittedTypeConverter.fromDefaults();
+    // Every thread marshals with its own XStream, set up with these converters
+    ConverterRegistry converterRegistry = new ConverterRegistry(AdviceTemplate::setUpXStream);
 
-    static void setUpXStream() {
+    static XStream setUpXStream(XStream xStream) {
         xStream.registerConverter(new FileCleanableConverter());
         xStream.registerConverter(new InflaterConverter());
         xStream.registerConverter(new CleanerImplConverter());
         xStream.registerConverter(new ThreadConverter());
         xStream.registerConverter(new ThreadGroupConverter());
+        xStream.registerConverter(omittedTypeConverter);
+        return xStream;
     }
 
     static String setUpInvokedMethodsCSVFile(String storageDir) throws Exception {
+        File invokedMethodsCSVFile = new File(storageDir + invokedMethodsFileName);
+        setUpInvokedMethodsCSVFile(invokedMethodsCSVFile);
+        return invokedMethodsCSVFile.getAbsolutePath();
+    }
+
+    static void setUpInvokedMethodsCSVFile(File invokedMethodsCSVFile) throws IOException {
         String[] HEADERS = {"visibility", "parent-FQN", "method-name", "param-list", "return-type",
                 "param-signature", "local-variables", "conditionals", "multiple-statements", "loops",
                 "parameters", "returns", "switches", "ifs", "static", "returns-primitives", "classification"};
 
-        File invokedMethodsCSVFile = new File(storageDir + "invoked-methods.csv");
         if (!invokedMethodsCSVFile.exists()) {
             FileWriter myWriter = new FileWriter(invokedMethodsCSVFile);
             myWriter.write(String.join(",", HEADERS));
             myWriter.close();
         }
-        return invokedMethodsCSVFile.getAbsolutePath();
     }
 
     static Map<Type, String> setUpFiles(String path) {
-        Map<Type, String> fileNameMap = new HashMap<>();
+        return setUpFiles(path, ".xml");
+    }
+
+    static Map<Type, String> setUpFiles(String path, String objectFileExtension) {
         try {
-            String storageDir = "/tmp/pankti-object-data/";
             Files.createDirectories(Paths.get(storageDir));
-            String invokedMethodsCSVFilePath = setUpInvokedMethodsCSVFile(storageDir);
-            String filePath = storageDir + path;
-            fileNameMap.put(Type.RECEIVING_PRE, filePath + "-receiving.xml");
-            fileNameMap.put(Type.RECEIVING_POST, filePath + "-receiving-post.xml");
-            fileNameMap.put(Type.PARAMS, filePath + "-params.xml");
-            fileNameMap.put(Type.RETURNED, filePath + "-returned.xml");
-            fileNameMap.put(Type.INVOCATION_COUNT, filePath + "-count.txt");
-            fileNameMap.put(Type.OBJECT_PROFILE_SIZE, filePath + "-object-profile-sizes.txt");
-            fileNameMap.put(Type.INVOKED_METHODS, invokedMethodsCSVFilePath);
-            return fileNameMap;
+            setUpInvokedMethodsCSVFile(storageDir);
+            return getFileNames(path, objectFileExtension);
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(0);
         }
+        return new HashMap<>();
+    }
+
+    // Names the files of a method without creating anything, for capture modes that write nothing until a dump
+    static Map<Type, String> getFileNames(String path, String objectFileExtension) {
+        Map<Type, String> fileNameMap = new HashMap<>();
+        String filePath = storageDir + path;
+        fileNameMap.put(Type.RECEIVING_PRE, filePath + "-receiving" + objectFileExtension);
+        fileNameMap.put(Type.RECEIVING_POST, filePath + "-receiving-post" + objectFileExtension);
+        fileNameMap.put(Type.PARAMS, filePath + "-params" + objectFileExtension);
+        fileNameMap.put(Type.RETURNED, filePath + "-returned" + objectFileExtension);
+        // Invocation counts of all methods are kept in a single file
+        fileNameMap.put(Type.INVOCATION_COUNT, storageDir + invocationCountsFileName);
+        fileNameMap.put(Type.OBJECT_PROFILE_SIZE, filePath + "-object-profile-sizes.txt");
+        fileNameMap.put(Type.INVOKED_METHODS, new File(storageDir + invokedMethodsFileName).getAbsolutePath());
         return fileNameMap;
     }
 }
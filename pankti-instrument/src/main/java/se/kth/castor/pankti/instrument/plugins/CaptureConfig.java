@@ -0,0 +1,272 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+import org.glowroot.agent.plugin.api.Agent;
+import org.glowroot.agent.plugin.api.config.*;
+import se.kth.castor.pankti.instrument.bounds.CaptureBounds;
+import se.kth.castor.pankti.instrument.sampling.*;
+import se.kth.castor.pankti.instrument.writers.BackpressurePolicy;
+import se.kth.castor.pankti.instrument.writers.FileObjectProfileSink;
+import se.kth.castor.pankti.instrument.writers.InvocationLogSink;
+import se.kth.castor.pankti.instrument.writers.ObjectProfileSink;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the capture settings declared in META-INF/glowroot.plugin.json.
+ * In the agent, they come from Glowroot's config service. Outside of it, e.g. in benchmarks,
+ * they are given explicitly with {@link #of(Map)} and installed with {@link #setInstance(CaptureConfig)}.
+ */
+public class CaptureConfig {
+    public static final String PLUGIN_ID = "panktiplugin";
+
+    // The settings shared by all instrumented methods, such as the writer queue and the registries
+    private static CaptureConfig instance;
+
+    private final StringProperty captureMode;
+    private final DoubleProperty memoryBufferRecordsPerMethod;
+    private final DoubleProperty memoryBufferSizeMBPerMethod;
+    private final StringProperty dumpTriggerFile;
+    private final StringProperty traceMode;
+    private final StringProperty storageMode;
+    private final DoubleProperty logSegmentSizeMB;
+    private final StringProperty profileFormat;
+    private final BooleanProperty compressProfiles;
+    private final DoubleProperty writerQueueCapacity;
+    private final StringProperty backpressurePolicy;
+    private final DoubleProperty backpressureSampleInterval;
+    private final DoubleProperty invocationCountFlushIntervalSeconds;
+    private final DoubleProperty maxObjectFileSizeMB;
+    private final DoubleProperty maxTotalObjectDataSizeMB;
+    private final BooleanProperty deduplicateStates;
+    private final DoubleProperty maxDistinctStatesPerMethod;
+    private final DoubleProperty maxCaptureDepth;
+    private final DoubleProperty maxCollectionElements;
+    private final DoubleProperty maxSnapshotSizeKB;
+    private final StringProperty omittedFields;
+    private final StringProperty omittedTypesFile;
+    private final StringProperty samplingPolicy;
+    private final DoubleProperty samplingProbability;
+    private final DoubleProperty samplingRatePerSecond;
+    private final DoubleProperty samplingReservoirSize;
+    private final DoubleProperty samplingWindowSeconds;
+    private final DoubleProperty samplingFirstN;
+
+    private CaptureConfig(ConfigService configService) {
+        this.captureMode = configService.getStringProperty("captureMode");
+        this.memoryBufferRecordsPerMethod = configService.getDoubleProperty("memoryBufferRecordsPerMethod");
+        this.memoryBufferSizeMBPerMethod = configService.getDoubleProperty("memoryBufferSizeMBPerMethod");
+        this.dumpTriggerFile = configService.getStringProperty("dumpTriggerFile");
+        this.traceMode = configService.getStringProperty("traceMode");
+        this.storageMode = configService.getStringProperty("storageMode");
+        this.logSegmentSizeMB = configService.getDoubleProperty("logSegmentSizeMB");
+        this.profileFormat = configService.getStringProperty("profileFormat");
+        this.compressProfiles = configService.getBooleanProperty("compressProfiles");
+        this.writerQueueCapacity = configService.getDoubleProperty("writerQueueCapacity");
+        this.backpressurePolicy = configService.getStringProperty("backpressurePolicy");
+        this.backpressureSampleInterval = configService.getDoubleProperty("backpressureSampleInterval");
+        this.invocationCountFlushIntervalSeconds = configService.getDoubleProperty("invocationCountFlushIntervalSeconds");
+        this.maxObjectFileSizeMB = configService.getDoubleProperty("maxObjectFileSizeMB");
+        this.maxTotalObjectDataSizeMB = configService.getDoubleProperty("maxTotalObjectDataSizeMB");
+        this.deduplicateStates = configService.getBooleanProperty("deduplicateStates");
+        this.maxDistinctStatesPerMethod = configService.getDoubleProperty("maxDistinctStatesPerMethod");
+        this.maxCaptureDepth = configService.getDoubleProperty("maxCaptureDepth");
+        this.maxCollectionElements = configService.getDoubleProperty("maxCollectionElements");
+        this.maxSnapshotSizeKB = configService.getDoubleProperty("maxSnapshotSizeKB");
+        this.omittedFields = configService.getStringProperty("omittedFields");
+        this.omittedTypesFile = configService.getStringProperty("omittedTypesFile");
+        this.samplingPolicy = configService.getStringProperty("samplingPolicy");
+        this.samplingProbability = configService.getDoubleProperty("samplingProbability");
+        this.samplingRatePerSecond = configService.getDoubleProperty("samplingRatePerSecond");
+        this.samplingReservoirSize = configService.getDoubleProperty("samplingReservoirSize");
+        this.samplingWindowSeconds = configService.getDoubleProperty("samplingWindowSeconds");
+        this.samplingFirstN = configService.getDoubleProperty("samplingFirstN");
+    }
+
+    // Unset properties take their default value
+    public static CaptureConfig of(Map<String, ?> properties) {
+        return new CaptureConfig(new FixedConfigService(properties));
+    }
+
+    public static synchronized CaptureConfig getInstance() {
+        if (instance == null) {
+            instance = new CaptureConfig(Agent.getConfigService(PLUGIN_ID));
+        }
+        return instance;
+    }
+
+    // The registries and writers read the shared settings when they are created, so this comes before the first capture
+    public static synchronized void setInstance(CaptureConfig config) {
+        instance = config;
+    }
+
+    // The invocation log is only written by the background writer
+    public boolean isAsyncCaptureEnabled() {
+        return !isMemoryCaptureEnabled()
+                && (captureMode.value().trim().equalsIgnoreCase("async") || isInvocationLogEnabled());
+    }
+
+    // Records are kept in memory until they are dumped, whatever the storage mode
+    public boolean isMemoryCaptureEnabled() {
+        return captureMode.value().trim().equalsIgnoreCase("memory");
+    }
+
+    public int getMemoryBufferRecordsPerMethod() {
+        return getIntValue(memoryBufferRecordsPerMethod, 1000);
+    }
+
+    public long getMemoryBufferBytesPerMethod() {
+        return getBytesValue(memoryBufferSizeMBPerMethod, 16);
+    }
+
+    public String getDumpTriggerFile() {
+        String triggerFile = dumpTriggerFile.value().trim();
+        return triggerFile.isEmpty() ? AdviceTemplate.storageDir + "dump-trigger" : triggerFile;
+    }
+
+    // Where async and memory capture modes write records
+    public ObjectProfileSink newObjectProfileSink() {
+        if (isInvocationLogEnabled()) {
+            return new InvocationLogSink(AdviceTemplate.storageDir,
+                    "invocations-" + ProcessHandle.current().pid(),
+                    getLogSegmentSizeBytes());
+        }
+        return new FileObjectProfileSink();
+    }
+
+    public TraceMode getTraceMode() {
+        return TraceMode.fromString(traceMode.value());
+    }
+
+    public boolean isInvocationLogEnabled() {
+        return storageMode.value().trim().equalsIgnoreCase("log");
+    }
+
+    public long getLogSegmentSizeBytes() {
+        return getBytesValue(logSegmentSizeMB, 64);
+    }
+
+    public String getProfileFormat() {
+        return profileFormat.value();
+    }
+
+    public boolean isProfileCompressionEnabled() {
+        return compressProfiles.value();
+    }
+
+    public int getWriterQueueCapacity() {
+        return getIntValue(writerQueueCapacity, 10000);
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return BackpressurePolicy.fromString(backpressurePolicy.value());
+    }
+
+    public int getBackpressureSampleInterval() {
+        return getIntValue(backpressureSampleInterval, 10);
+    }
+
+    public int getInvocationCountFlushIntervalSeconds() {
+        return getIntValue(invocationCountFlushIntervalSeconds, 10);
+    }
+
+    public long getMaxObjectFileSizeBytes() {
+        return getBytesValue(maxObjectFileSizeMB, 200);
+    }
+
+    public long getMaxTotalObjectDataSizeBytes() {
+        return getBytesValue(maxTotalObjectDataSizeMB, 0);
+    }
+
+    // 0 disables deduplication
+    public int getMaxDistinctStatesPerMethod() {
+        return deduplicateStates.value() ? getIntValue(maxDistinctStatesPerMethod, 100000) : 0;
+    }
+
+    public CaptureBounds getCaptureBounds() {
+        Double snapshotSizeKB = maxSnapshotSizeKB.value();
+        return new CaptureBounds(
+                getIntValue(maxCaptureDepth, 0),
+                getIntValue(maxCollectionElements, 0),
+                snapshotSizeKB == null ? 0 : (long) (Math.max(0, snapshotSizeKB) * 1024),
+                CaptureBounds.parseOmittedFields(omittedFields.value()));
+    }
+
+    public String getOmittedTypesFile() {
+        return omittedTypesFile.value();
+    }
+
+    // Every instrumented method gets its own sampler
+    public Sampler newSampler() {
+        switch (SamplingPolicy.fromString(samplingPolicy.value())) {
+            case PROBABILITY:
+                Double probability = samplingProbability.value();
+                return new ProbabilitySampler(probability == null ? 1.0 : probability);
+            case RATE:
+                Double ratePerSecond = samplingRatePerSecond.value();
+                return new RateLimitingSampler(ratePerSecond == null || ratePerSecond <= 0 ? 10.0 : ratePerSecond);
+            case RESERVOIR:
+                return new ReservoirSampler(getIntValue(samplingReservoirSize, 100),
+                        TimeUnit.SECONDS.toNanos(getIntValue(samplingWindowSeconds, 60)));
+            case FIRST_N:
+                return new FirstNSampler(getIntValue(samplingFirstN, 1000));
+            default:
+                return Sampler.ALWAYS;
+        }
+    }
+
+    // Sizes are configured in MB, 0 means unlimited
+    private static long getBytesValue(DoubleProperty property, long defaultValueMB) {
+        Double value = property.value();
+        if (value == null) {
+            return defaultValueMB * 1024 * 1024;
+        }
+        return (long) (Math.max(0, value) * 1024 * 1024);
+    }
+
+    private static int getIntValue(DoubleProperty property, int defaultValue) {
+        Double value = property.value();
+        if (value == null || value < 1) {
+            return defaultValue;
+        }
+        return value.intValue();
+    }
+
+    private static class FixedConfigService implements ConfigService {
+        private final Map<String, ?> properties;
+
+        private FixedConfigService(Map<String, ?> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public void registerConfigListener(ConfigListener listener) {
+            // The properties never change
+        }
+
+        @Override
+        public StringProperty getStringProperty(String name) {
+            String value = properties.containsKey(name) ? String.valueOf(properties.get(name)) : "";
+            return () -> value;
+        }
+
+        @Override
+        public BooleanProperty getBooleanProperty(String name) {
+            boolean value = Boolean.TRUE.equals(properties.get(name));
+            return () -> value;
+        }
+
+        @Override
+        public DoubleProperty getDoubleProperty(String name) {
+            Object value = properties.get(name);
+            Double doubleValue = value instanceof Number ? ((Number) value).doubleValue() : null;
+            return () -> doubleValue;
+        }
+
+        @Override
+        public ListProperty getListProperty(String name) {
+            return List::of;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import org.glowroot.agent.plugin.api.*;
+import se.kth.castor.pankti.instrument.counters.InvocationCountRegistry;
+import se.kth.castor.pankti.instrument.counters.InvocationIdGenerator;
+import se.kth.castor.pankti.instrument.dedup.CapturedState;
+import se.kth.castor.pankti.instrument.dedup.StateDeduplicator;
+import se.kth.castor.pankti.instrument.dedup.StateMultiplicityRegistry;
+import se.kth.castor.pankti.instrument.encoders.EncodingBuffer;
+import se.kth.castor.pankti.instrument.encoders.ObjectProfileEncoder;
+import se.kth.castor.pankti.instrument.memory.MemoryCaptureStore;
+import se.kth.castor.pankti.instrument.memory.RecordRingBuffer;
+import se.kth.castor.pankti.instrument.sampling.Sampler;
+import se.kth.castor.pankti.instrument.writers.*;
+
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Captures the invocations of one instrumented method.
+ * The advice classes generated by AspectGenerator hand every invocation to the instance
+ * of the woven method through {@link MethodMeta}, so the capture code is loaded once for all methods.
+ */
+public class CapturedMethod implements AdviceTemplate {
+    private static final String transactionType = "Target";
+    private static final Pattern converterExceptionClassNamePattern = Pattern.compile("type\\s+:\\s+(\\S*)\\n");
+    private static final long NOT_WRITTEN = -1L;
+
+    private final TraceMode traceMode;
+    // Null if nothing is traced
+    private final TimerName timer;
+    // Built once, the message is only rendered if Glowroot stores the trace
+    private final MessageSupplier messageSupplier;
+    private final int methodId;
+    private final String className;
+    private final String methodFQN;
+    private final String rowInCSVFile;
+    private final LongAdder invocationCount;
+    private final AtomicBoolean invoked = new AtomicBoolean();
+    private final InvokedMethodsRegistry invokedMethodsRegistry = InvokedMethodsRegistry.getInstance();
+    private final boolean asyncCapture;
+    private final Sampler sampler;
+    private final StateDeduplicator stateDeduplicator;
+    private final ObjectProfileEncoder encoder;
+    private final String receivingObjectFilePath;
+    private final String paramObjectsFilePath;
+    // The receiving object after the invocation for void methods, the returned object otherwise
+    private final String returnedOrReceivingPostObjectFilePath;
+    private final String objectProfileSizeFilePath;
+    private final ObjectProfileSizeBudget sizeBudget;
+    // Null unless records are kept in memory until they are dumped
+    private final RecordRingBuffer ringBuffer;
+
+    // Outside of the agent, e.g. in benchmarks, the config is explicit and the trace mode none
+    public CapturedMethod(int methodId, MethodTable methodTable, CaptureConfig config) {
+        String methodParamTypesString = String.join(",", methodTable.getParameterTypes(methodId));
+        String postfix = methodParamTypesString.isEmpty() ? "" : "_" + methodParamTypesString;
+        boolean isReturnTypeVoid = methodTable.isReturnTypeVoid(methodId);
+        this.methodId = methodId;
+        this.className = methodTable.getClassName(methodId);
+        this.traceMode = config.getTraceMode();
+        this.timer = traceMode == TraceMode.NONE
+                ? null : Agent.getTimerName(className + "-" + methodTable.getMethodName(methodId));
+        this.messageSupplier = MessageSupplier.create(
+                "className: {}, methodName: {}", className, methodTable.getMethodName(methodId));
+        this.methodFQN = className + "." + methodTable.getMethodName(methodId) + postfix;
+        this.rowInCSVFile = methodTable.getRowInCSVFile(methodId);
+        this.invocationCount = InvocationCountRegistry.getInstance().register(methodFQN);
+        this.asyncCapture = config.isAsyncCaptureEnabled();
+        this.sampler = config.newSampler();
+
+        // Known unserializable types and the capture bounds apply from the first invocation on
+        converterRegistry.registerOmittedTypesFile(config.getOmittedTypesFile());
+        converterRegistry.setCaptureBounds(config.getCaptureBounds());
+        this.stateDeduplicator = StateMultiplicityRegistry.getInstance().register(
+                new StateDeduplicator(methodFQN, converterRegistry, config.getMaxDistinctStatesPerMethod()));
+
+        this.encoder = ObjectProfileEncoder.forFormat(
+                config.getProfileFormat(), config.isProfileCompressionEnabled(), converterRegistry);
+        Map<Type, String> fileNameMap = config.isMemoryCaptureEnabled()
+                ? AdviceTemplate.getFileNames(methodFQN, encoder.getFileExtension())
+                : AdviceTemplate.setUpFiles(methodFQN, encoder.getFileExtension());
+        this.receivingObjectFilePath = fileNameMap.get(Type.RECEIVING_PRE);
+        this.paramObjectsFilePath = fileNameMap.get(Type.PARAMS);
+        this.returnedOrReceivingPostObjectFilePath = fileNameMap.get(isReturnTypeVoid ? Type.RECEIVING_POST : Type.RETURNED);
+        this.objectProfileSizeFilePath = fileNameMap.get(Type.OBJECT_PROFILE_SIZE);
+        this.sizeBudget = new ObjectProfileSizeBudget(
+                List.of(receivingObjectFilePath, fileNameMap.get(Type.RECEIVING_POST), fileNameMap.get(Type.RETURNED),
+                        paramObjectsFilePath),
+                config.getMaxObjectFileSizeBytes(),
+                GlobalSizeBudget.getInstance());
+        this.ringBuffer = config.isMemoryCaptureEnabled()
+                ? MemoryCaptureStore.getInstance().newRingBuffer(methodFQN,
+                evictedRecord -> stateDeduplicator.forget(evictedRecord.getCapturedState()))
+                : null;
+    }
+
+    public Invocation onBefore(OptionalThreadContext context, Object receivingObject,
+                               Object parameterObjects, String methodName) {
+        String invocationId = null;
+        ObjectProfileRecord record = null;
+        CapturedState capturedState = null;
+        long profileSizePre = 0L;
+        // Sampled out invocations are rejected before their objects are hashed
+        if (sizeBudget.isWithinBudget() && (sampler.countsDistinctStates() || sampler.shouldCapture())) {
+            capturedState = stateDeduplicator.registerState(receivingObject, parameterObjects,
+                    InvocationIdGenerator::nextId);
+            // Only states not captured yet count against such samplers, so that repeats do not use them up
+            if (capturedState != null && sampler.countsDistinctStates() && !sampler.shouldCapture()) {
+                stateDeduplicator.forget(capturedState);
+                capturedState = null;
+            }
+        }
+        if (capturedState != null) {
+            // Tags every object of this invocation, so that pankti-generate can join them
+            invocationId = capturedState.isTracked()
+                    ? capturedState.getInvocationId() : InvocationIdGenerator.nextId();
+            if (!asyncCapture && ringBuffer == null) {
+                profileSizePre = writeObjectXMLToFiles(receivingObject, parameterObjects, invocationId);
+                if (profileSizePre == NOT_WRITTEN) {
+                    stateDeduplicator.forget(capturedState);
+                    capturedState = null;
+                    profileSizePre = 0L;
+                }
+            } else if (ringBuffer != null || AsyncObjectProfileWriter.getInstance().acceptsInvocation()) {
+                record = new ObjectProfileRecord(methodFQN, invocationId, objectProfileSizeFilePath, sizeBudget,
+                        capturedState);
+                writeObjectXMLToFile(receivingObject, receivingObjectFilePath, record);
+                writeObjectXMLToFile(parameterObjects, paramObjectsFilePath, record);
+            } else {
+                stateDeduplicator.forget(capturedState);
+                capturedState = null;
+            }
+        }
+        return new Invocation(startTraceEntry(context, methodName), invocationId, capturedState, record, profileSizePre);
+    }
+
+    // Null if nothing is traced
+    private TraceEntry startTraceEntry(OptionalThreadContext context, String methodName) {
+        switch (traceMode) {
+            case ENTRY:
+                return context.startTraceEntry(messageSupplier, timer);
+            case NONE:
+                return null;
+            default:
+                return context.startTransaction(transactionType, methodName, messageSupplier, timer,
+                        OptionalThreadContext.AlreadyInTransactionBehavior.CAPTURE_NEW_TRANSACTION);
+        }
+    }
+
+    // The receiving object after the invocation for void methods, the returned object otherwise
+    public void onReturn(Object returnedOrReceivingPostObject, Invocation invocation) {
+        ObjectProfileRecord record = invocation.getObjectProfileRecord();
+        if (record != null) {
+            writeObjectXMLToFile(returnedOrReceivingPostObject, returnedOrReceivingPostObjectFilePath, record);
+            if (record.isDiscarded() || !submit(record)) {
+                stateDeduplicator.forget(invocation.getCapturedState());
+            }
+        } else if (invocation.isCaptured()) {
+            long profileSizePost = writeObjectXMLToFile(returnedOrReceivingPostObject,
+                    returnedOrReceivingPostObjectFilePath, invocation.getInvocationId());
+            if (profileSizePost == NOT_WRITTEN) {
+                // Without this object, pankti-generate skips the objects written in @OnBefore
+                stateDeduplicator.forget(invocation.getCapturedState());
+            } else {
+                writeObjectProfileSizeToFile(invocation.getObjectProfileSizePre() + profileSizePost);
+            }
+        }
+        invocationCount.increment();
+        if (!invoked.get() && invoked.compareAndSet(false, true)) {
+            invokedMethodsRegistry.register(rowInCSVFile);
+        }
+        if (invocation.getTraceEntry() != null) {
+            invocation.getTraceEntry().end();
+        }
+    }
+
+    // Returns false if the record was dropped
+    private boolean submit(ObjectProfileRecord record) {
+        if (ringBuffer != null) {
+            return ringBuffer.add(record);
+        }
+        return AsyncObjectProfileWriter.getInstance().submit(record);
+    }
+
+    public void onThrow(Throwable throwable, Invocation invocation) {
+        if (invocation.isCaptured()) {
+            stateDeduplicator.forget(invocation.getCapturedState());
+        }
+        if (invocation.getTraceEntry() != null) {
+            invocation.getTraceEntry().endWithError(throwable);
+        }
+    }
+
+    // Returns the number of bytes written, or NOT_WRITTEN if the object could not be serialized.
+    // Threads encode concurrently, only the append is serialized
+    private long writeObjectXMLToFile(Object objectToWrite, String objectFilePath, String invocationId) {
+        try {
+            EncodingBuffer encodedObject = encoder.encodeToBuffer(objectToWrite, invocationId);
+            synchronized (this) {
+                try (FileOutputStream objectFileStream = new FileOutputStream(objectFilePath, true)) {
+                    encodedObject.writeTo(objectFileStream);
+                }
+            }
+            sizeBudget.recordBytesWritten(objectFilePath, encodedObject.size());
+            return encodedObject.size();
+        } catch (Exception e) {
+            handleSerializationException(e, objectFilePath);
+        }
+        return NOT_WRITTEN;
+    }
+
+    // Both objects are encoded before either is appended, so that a failure leaves no half profile behind
+    private long writeObjectXMLToFiles(Object receivingObject, Object parameterObjects, String invocationId) {
+        String objectFilePath = receivingObjectFilePath;
+        try {
+            byte[] encodedReceivingObject = encoder.encode(receivingObject, invocationId);
+            objectFilePath = paramObjectsFilePath;
+            EncodingBuffer encodedParams = encoder.encodeToBuffer(parameterObjects, invocationId);
+            synchronized (this) {
+                try (FileOutputStream objectFileStream = new FileOutputStream(receivingObjectFilePath, true)) {
+                    objectFileStream.write(encodedReceivingObject);
+                }
+                try (FileOutputStream objectFileStream = new FileOutputStream(paramObjectsFilePath, true)) {
+                    encodedParams.writeTo(objectFileStream);
+                }
+            }
+            sizeBudget.recordBytesWritten(receivingObjectFilePath, encodedReceivingObject.length);
+            sizeBudget.recordBytesWritten(paramObjectsFilePath, encodedParams.size());
+            return encodedReceivingObject.length + encodedParams.size();
+        } catch (Exception e) {
+            handleSerializationException(e, objectFilePath);
+        }
+        return NOT_WRITTEN;
+    }
+
+    // Only encode on the application thread, the file is written by AsyncObjectProfileWriter
+    private void writeObjectXMLToFile(Object objectToWrite, String objectFilePath, ObjectProfileRecord record) {
+        try {
+            record.addEncodedObject(objectFilePath, encoder.encode(objectToWrite, record.getInvocationId()));
+        } catch (Exception e) {
+            record.discard();
+            handleSerializationException(e, objectFilePath);
+        }
+    }
+
+    private void handleSerializationException(Exception e, String objectFilePath) {
+        // Glowroot's logger is only available in the agent
+        Logger logger = Logger.getLogger(CapturedMethod.class);
+        logger.info("Exception when writing XML for method " + methodId + " to file " + objectFilePath);
+        e.printStackTrace();
+        if (e.getMessage().startsWith("No converter specified") || e.getMessage().startsWith("No converter available")) {
+            String className = extractClassNameFromTheExceptionMessage(e.getMessage());
+            registerConverterAtRuntime(className);
+            logger.info("Automatically register a converter for: " + className);
+        }
+    }
+
+    // Write size (in bytes) of individual object profile to file
+    private synchronized void writeObjectProfileSizeToFile(long size) {
+        try {
+            FileWriter objectFileWriter = new FileWriter(objectProfileSizeFilePath, true);
+            objectFileWriter.write(size + "\n");
+            objectFileWriter.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static String extractClassNameFromTheExceptionMessage(String exceptionMessage) {
+        String className = "";
+        Matcher m = converterExceptionClassNamePattern.matcher(exceptionMessage);
+        if (m.find()) {
+            className = m.group(1);
+        }
+        return className;
+    }
+
+    public static void registerConverterAtRuntime(String className) {
+        converterRegistry.registerConverter(className, new Converter() {
+            @Override
+            public void marshal(Object o, HierarchicalStreamWriter hierarchicalStreamWriter, MarshallingContext marshallingContext) {
+            }
+
+            @Override
+            public Object unmarshal(HierarchicalStreamReader hierarchicalStreamReader, UnmarshallingContext unmarshallingContext) {
+                return null;
+            }
+
+            @Override
+            public boolean canConvert(Class aClass) {
+                return aClass.getCanonicalName().equals(className);
+            }
+        });
+    }
+}
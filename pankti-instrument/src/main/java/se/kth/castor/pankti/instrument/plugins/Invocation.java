@@ -0,0 +1,53 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+import org.glowroot.agent.plugin.api.TraceEntry;
+import se.kth.castor.pankti.instrument.dedup.CapturedState;
+import se.kth.castor.pankti.instrument.writers.ObjectProfileRecord;
+
+/**
+ * Traveler passed from @OnBefore to @OnReturn / @OnThrow.
+ * The record is null unless the invocation is captured asynchronously.
+ */
+public class Invocation {
+    // Null if the trace mode is none
+    private final TraceEntry traceEntry;
+    // Both null unless the invocation is captured
+    private final String invocationId;
+    private final CapturedState capturedState;
+    private final ObjectProfileRecord objectProfileRecord;
+    // Bytes written in @OnBefore when capturing synchronously
+    private final long objectProfileSizePre;
+
+    public Invocation(TraceEntry traceEntry, String invocationId, CapturedState capturedState,
+                      ObjectProfileRecord objectProfileRecord, long objectProfileSizePre) {
+        this.traceEntry = traceEntry;
+        this.invocationId = invocationId;
+        this.capturedState = capturedState;
+        this.objectProfileRecord = objectProfileRecord;
+        this.objectProfileSizePre = objectProfileSizePre;
+    }
+
+    public TraceEntry getTraceEntry() {
+        return traceEntry;
+    }
+
+    public String getInvocationId() {
+        return invocationId;
+    }
+
+    public boolean isCaptured() {
+        return capturedState != null;
+    }
+
+    public CapturedState getCapturedState() {
+        return capturedState;
+    }
+
+    public ObjectProfileRecord getObjectProfileRecord() {
+        return objectProfileRecord;
+    }
+
+    public long getObjectProfileSizePre() {
+        return objectProfileSizePre;
+    }
+}
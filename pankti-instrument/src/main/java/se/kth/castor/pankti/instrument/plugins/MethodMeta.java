@@ -0,0 +1,55 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+import org.glowroot.agent.plugin.api.MethodInfo;
+import org.glowroot.agent.plugin.api.OptionalThreadContext;
+import org.glowroot.agent.plugin.api.weaving.OptionalReturn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bound with @BindMethodMeta, so Glowroot creates it once for every woven method.
+ * Resolves the method to its id in the {@link MethodTable}, and hands every invocation to the
+ * shared capture code of that method. Methods matched by a pointcut that are not in the table
+ * (other overloads, or methods of the same name in other classes) are left alone.
+ */
+public class MethodMeta {
+    private final int methodId;
+    private final CapturedMethod capturedMethod;
+
+    public MethodMeta(MethodInfo methodInfo) {
+        List<String> parameterTypes = new ArrayList<>();
+        for (Class<?> parameterType : methodInfo.getParameterTypes()) {
+            parameterTypes.add(parameterType.getTypeName());
+        }
+        MethodTable methodTable = MethodTable.getInstance();
+        this.methodId = methodTable.getMethodId(
+                MethodTable.methodKey(methodInfo.getDeclaringClassName(), methodInfo.getName(), parameterTypes));
+        this.capturedMethod = methodId < 0 ? null : methodTable.getCapturedMethod(methodId);
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public Invocation onBefore(OptionalThreadContext context, Object receivingObject,
+                               Object parameterObjects, String methodName) {
+        if (capturedMethod == null) {
+            return null;
+        }
+        return capturedMethod.onBefore(context, receivingObject, parameterObjects, methodName);
+    }
+
+    // Void methods capture the receiving object after the invocation instead of the returned object
+    public void onReturn(OptionalReturn optionalReturn, Object receivingObject, Invocation invocation) {
+        if (invocation != null) {
+            capturedMethod.onReturn(optionalReturn.isVoid() ? receivingObject : optionalReturn.getValue(), invocation);
+        }
+    }
+
+    public void onThrow(Throwable throwable, Invocation invocation) {
+        if (invocation != null) {
+            capturedMethod.onThrow(throwable, invocation);
+        }
+    }
+}
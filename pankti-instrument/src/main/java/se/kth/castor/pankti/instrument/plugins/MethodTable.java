@@ -0,0 +1,119 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The instrumented methods by id, as listed by AspectGenerator in {@value #RESOURCE}.
+ * Woven methods are resolved to their id once, when they are woven (see {@link MethodMeta}),
+ * and the state of every method lives in arrays indexed by that id.
+ */
+public class MethodTable {
+    public static final String RESOURCE = "/META-INF/pankti-instrumented-methods.tsv";
+
+    private final Map<String, Integer> methodIds = new HashMap<>();
+    private final String[] classNames;
+    private final String[] methodNames;
+    private final String[][] parameterTypes;
+    private final String[] rowsInCSVFile;
+    private final boolean[] returnTypeVoid;
+    private final CapturedMethod[] capturedMethods;
+
+    // One line per method: id, class name, method name, parameter types, void, row in invoked-methods.csv
+    MethodTable(List<String> lines) {
+        int size = lines.size();
+        classNames = new String[size];
+        methodNames = new String[size];
+        parameterTypes = new String[size][];
+        rowsInCSVFile = new String[size];
+        returnTypeVoid = new boolean[size];
+        capturedMethods = new CapturedMethod[size];
+        for (String line : lines) {
+            String[] columns = line.split("\t", -1);
+            int methodId = Integer.parseInt(columns[0]);
+            classNames[methodId] = columns[1];
+            methodNames[methodId] = columns[2];
+            parameterTypes[methodId] = columns[3].isEmpty() ? new String[0] : columns[3].split(",");
+            returnTypeVoid[methodId] = Boolean.parseBoolean(columns[4]);
+            rowsInCSVFile[methodId] = columns[5];
+            methodIds.put(methodKey(columns[1], columns[2], getParameterTypes(methodId)), methodId);
+        }
+    }
+
+    public static MethodTable getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public static MethodTable load(InputStream tableStream) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(tableStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+        return new MethodTable(lines);
+    }
+
+    public static String methodKey(String className, String methodName, List<String> parameterTypes) {
+        return className + "." + methodName + "(" + String.join(",", parameterTypes) + ")";
+    }
+
+    // -1 if a pointcut matched a method that is not instrumented, such as an overload
+    public int getMethodId(String methodKey) {
+        return methodIds.getOrDefault(methodKey, -1);
+    }
+
+    public int size() {
+        return classNames.length;
+    }
+
+    public String getClassName(int methodId) {
+        return classNames[methodId];
+    }
+
+    public String getMethodName(int methodId) {
+        return methodNames[methodId];
+    }
+
+    public List<String> getParameterTypes(int methodId) {
+        return List.of(parameterTypes[methodId]);
+    }
+
+    public boolean isReturnTypeVoid(int methodId) {
+        return returnTypeVoid[methodId];
+    }
+
+    public String getRowInCSVFile(int methodId) {
+        return rowsInCSVFile[methodId];
+    }
+
+    // Created when the method is first woven, and shared by every class loader that loads it
+    public synchronized CapturedMethod getCapturedMethod(int methodId) {
+        if (capturedMethods[methodId] == null) {
+            capturedMethods[methodId] = new CapturedMethod(methodId, this, CaptureConfig.getInstance());
+        }
+        return capturedMethods[methodId];
+    }
+
+    private static class InstanceHolder {
+        private static final MethodTable INSTANCE = loadInstance();
+
+        private static MethodTable loadInstance() {
+            try (InputStream tableStream = MethodTable.class.getResourceAsStream(RESOURCE)) {
+                if (tableStream != null) {
+                    return load(tableStream);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return new MethodTable(Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+/**
+ * What Glowroot records for every invocation of an instrumented method
+ */
+public enum TraceMode {
+    // A new transaction for every invocation, even within another transaction
+    TRANSACTION,
+    // A trace entry in the current transaction, nothing outside of a transaction
+    ENTRY,
+    // Nothing, only the object profiles are captured
+    NONE;
+
+    public static TraceMode fromString(String mode) {
+        if (mode == null) {
+            return TRANSACTION;
+        }
+        for (TraceMode value : values()) {
+            if (value.name().equalsIgnoreCase(mode.trim())) {
+                return value;
+            }
+        }
+        return TRANSACTION;
+    }
+}
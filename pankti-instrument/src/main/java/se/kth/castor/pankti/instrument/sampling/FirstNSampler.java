@@ -0,0 +1,24 @@
+package se.kth.castor.pankti.instrument.sampling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FirstNSampler implements Sampler {
+    private final long maxInvocations;
+    private final AtomicLong invocations = new AtomicLong();
+
+    public FirstNSampler(long maxInvocations) {
+        this.maxInvocations = maxInvocations;
+    }
+
+    @Override
+    public boolean shouldCapture() {
+        // Stop counting once the limit is reached
+        return invocations.get() < maxInvocations && invocations.getAndIncrement() < maxInvocations;
+    }
+
+    // The first N distinct states, rather than the first N invocations
+    @Override
+    public boolean countsDistinctStates() {
+        return true;
+    }
+}
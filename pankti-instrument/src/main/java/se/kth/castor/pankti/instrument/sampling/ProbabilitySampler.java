@@ -0,0 +1,16 @@
+package se.kth.castor.pankti.instrument.sampling;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ProbabilitySampler implements Sampler {
+    private final double probability;
+
+    public ProbabilitySampler(double probability) {
+        this.probability = probability;
+    }
+
+    @Override
+    public boolean shouldCapture() {
+        return ThreadLocalRandom.current().nextDouble() < probability;
+    }
+}
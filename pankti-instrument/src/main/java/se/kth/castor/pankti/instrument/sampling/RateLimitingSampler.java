@@ -0,0 +1,40 @@
+package se.kth.castor.pankti.instrument.sampling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket refilled at a fixed rate, holding at most one second worth of tokens.
+ * Implemented as a virtual scheduling clock updated with compare-and-set, so that
+ * threads invoking the same method never block each other.
+ */
+public class RateLimitingSampler implements Sampler {
+    private final long nanosPerToken;
+    private final long burstNanos;
+    // Time at which the bucket is empty again, given the invocations captured so far
+    private final AtomicLong emptyAt;
+
+    public RateLimitingSampler(double invocationsPerSecond) {
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(invocationsPerSecond, 1e-9));
+        this.burstNanos = Math.max(nanosPerToken, TimeUnit.SECONDS.toNanos(1));
+        this.emptyAt = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    @Override
+    public boolean shouldCapture() {
+        return shouldCapture(System.nanoTime());
+    }
+
+    boolean shouldCapture(long nowNanos) {
+        while (true) {
+            long current = emptyAt.get();
+            long next = Math.max(current, nowNanos - burstNanos) + nanosPerToken;
+            if (next - nowNanos > 0) {
+                return false;
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package se.kth.castor.pankti.instrument.sampling;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reservoir sampling over consecutive time windows. Captured objects cannot be taken back,
+ * so instead of replacing earlier samples, the k-th invocation of a window is captured
+ * with the probability it would have to enter a reservoir of the given size, size / k.
+ * Every invocation of a window has the same chance of being kept in the reservoir,
+ * and the number of captures grows only with the logarithm of the invocations.
+ */
+public class ReservoirSampler implements Sampler {
+    private final long reservoirSize;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final AtomicLong invocationsInWindow = new AtomicLong();
+
+    public ReservoirSampler(long reservoirSize, long windowNanos) {
+        this.reservoirSize = reservoirSize;
+        this.windowNanos = windowNanos;
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    @Override
+    public boolean shouldCapture() {
+        return shouldCapture(System.nanoTime());
+    }
+
+    boolean shouldCapture(long nowNanos) {
+        long start = windowStart.get();
+        if (nowNanos - start >= windowNanos && windowStart.compareAndSet(start, nowNanos)) {
+            invocationsInWindow.set(0L);
+        }
+        long k = invocationsInWindow.incrementAndGet();
+        return k <= reservoirSize || ThreadLocalRandom.current().nextLong(k) < reservoirSize;
+    }
+}
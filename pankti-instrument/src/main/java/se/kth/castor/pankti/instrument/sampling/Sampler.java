@@ -0,0 +1,18 @@
+package se.kth.castor.pankti.instrument.sampling;
+
+/**
+ * Decides, before any object is serialized or hashed, whether an invocation is captured.
+ * Samplers that count distinct states are the exception: with state deduplication, they are
+ * only asked about invocations whose state was not captured yet, after it has been hashed.
+ * Every instrumented method has its own sampler, shared by all threads invoking it.
+ */
+public interface Sampler {
+    Sampler ALWAYS = () -> true;
+
+    boolean shouldCapture();
+
+    // True if repeated states must not use up the sampler, so that it is asked after deduplication
+    default boolean countsDistinctStates() {
+        return false;
+    }
+}
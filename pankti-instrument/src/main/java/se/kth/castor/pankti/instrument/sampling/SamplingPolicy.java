@@ -0,0 +1,29 @@
+package se.kth.castor.pankti.instrument.sampling;
+
+/**
+ * Which invocations of an instrumented method are captured
+ */
+public enum SamplingPolicy {
+    // Capture every invocation
+    ALL,
+    // Capture each invocation with a fixed probability
+    PROBABILITY,
+    // Capture at most a number of invocations per second for every method
+    RATE,
+    // Capture a random sample of the invocations in every time window
+    RESERVOIR,
+    // Capture only the first N invocations of every method
+    FIRST_N;
+
+    public static SamplingPolicy fromString(String policy) {
+        if (policy == null) {
+            return ALL;
+        }
+        for (SamplingPolicy value : values()) {
+            if (value.name().replace("_", "").equalsIgnoreCase(policy.trim().replace("-", "").replace("_", ""))) {
+                return value;
+            }
+        }
+        return ALL;
+    }
+}
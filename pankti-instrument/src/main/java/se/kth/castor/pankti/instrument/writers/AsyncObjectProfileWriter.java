@@ -0,0 +1,143 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import se.kth.castor.pankti.instrument.plugins.CaptureConfig;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes object profiles from a bounded queue on a single background thread,
+ * so that application threads only pay for encoding the objects.
+ * Records go either to the per-method object files or to the invocation log.
+ */
+public class AsyncObjectProfileWriter {
+    private static final long pollTimeoutMillis = 100;
+
+    private final BlockingQueue<ObjectProfileRecord> queue;
+    private final int highWatermark;
+    private final BackpressurePolicy backpressurePolicy;
+    private final int sampleInterval;
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicLong droppedInvocations = new AtomicLong();
+    private final AtomicLong writtenInvocations = new AtomicLong();
+    // Only accessed from the writer thread
+    private final ObjectProfileSink sink;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public AsyncObjectProfileWriter(int queueCapacity, BackpressurePolicy backpressurePolicy, int sampleInterval) {
+        this(queueCapacity, backpressurePolicy, sampleInterval, new FileObjectProfileSink());
+    }
+
+    public AsyncObjectProfileWriter(int queueCapacity, BackpressurePolicy backpressurePolicy, int sampleInterval,
+                                    ObjectProfileSink sink) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.highWatermark = Math.max(1, queueCapacity / 2);
+        this.backpressurePolicy = backpressurePolicy;
+        this.sampleInterval = Math.max(1, sampleInterval);
+        this.writerThread = new Thread(this::drainQueue, "pankti-object-profile-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    public static AsyncObjectProfileWriter getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public void start() {
+        writerThread.start();
+    }
+
+    // Decide before any serialization work whether this invocation will be captured
+    public boolean acceptsInvocation() {
+        switch (backpressurePolicy) {
+            case BLOCK:
+                return true;
+            case SAMPLE:
+                if (queue.size() < highWatermark || sampleCounter.incrementAndGet() % sampleInterval == 0) {
+                    return true;
+                }
+                break;
+            default:
+                if (queue.remainingCapacity() > 0) {
+                    return true;
+                }
+        }
+        droppedInvocations.incrementAndGet();
+        return false;
+    }
+
+    // Returns false if the record was dropped
+    public boolean submit(ObjectProfileRecord record) {
+        if (backpressurePolicy == BackpressurePolicy.BLOCK) {
+            try {
+                while (running) {
+                    if (queue.offer(record, pollTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (queue.offer(record)) {
+            return true;
+        }
+        droppedInvocations.incrementAndGet();
+        return false;
+    }
+
+    public long getDroppedInvocations() {
+        return droppedInvocations.get();
+    }
+
+    public long getWrittenInvocations() {
+        return writtenInvocations.get();
+    }
+
+    // Stop accepting records, write everything still queued, and close all files
+    public void shutdown() {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainQueue() {
+        try {
+            while (running || !queue.isEmpty()) {
+                ObjectProfileRecord record = queue.poll(pollTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    sink.write(record);
+                    writtenInvocations.incrementAndGet();
+                }
+                if (queue.isEmpty()) {
+                    sink.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sink.close();
+        }
+    }
+
+    private static class InstanceHolder {
+        private static final AsyncObjectProfileWriter INSTANCE = createInstance();
+
+        private static AsyncObjectProfileWriter createInstance() {
+            CaptureConfig config = CaptureConfig.getInstance();
+            AsyncObjectProfileWriter writer = new AsyncObjectProfileWriter(
+                    config.getWriterQueueCapacity(),
+                    config.getBackpressurePolicy(),
+                    config.getBackpressureSampleInterval(),
+                    config.newObjectProfileSink());
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::shutdown, "pankti-object-profile-writer-shutdown"));
+            return writer;
+        }
+    }
+}
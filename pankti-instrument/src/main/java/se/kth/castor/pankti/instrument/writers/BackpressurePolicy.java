@@ -0,0 +1,25 @@
+package se.kth.castor.pankti.instrument.writers;
+
+/**
+ * What an application thread does when the background writer queue cannot keep up
+ */
+public enum BackpressurePolicy {
+    // Skip the invocation if the queue is full
+    DROP,
+    // Once the queue is half full, keep only one in every N invocations
+    SAMPLE,
+    // Wait for the writer thread to free up space in the queue
+    BLOCK;
+
+    public static BackpressurePolicy fromString(String policy) {
+        if (policy == null) {
+            return DROP;
+        }
+        for (BackpressurePolicy value : values()) {
+            if (value.name().equalsIgnoreCase(policy.trim())) {
+                return value;
+            }
+        }
+        return DROP;
+    }
+}
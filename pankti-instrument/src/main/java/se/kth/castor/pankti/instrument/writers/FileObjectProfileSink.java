@@ -0,0 +1,94 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Appends every object of a record to its own object file, and the profile size
+ * of the invocation to the size file of the method. The most recently written files
+ * are kept open, the least recently written one is closed when another file is opened,
+ * so that the number of open files does not grow with the number of instrumented methods.
+ */
+public class FileObjectProfileSink implements ObjectProfileSink {
+    public static final int defaultMaxOpenStreams = 64;
+
+    private final Map<String, OutputStream> openStreams;
+
+    public FileObjectProfileSink() {
+        this(defaultMaxOpenStreams);
+    }
+
+    public FileObjectProfileSink(int maxOpenStreams) {
+        this.openStreams = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OutputStream> eldest) {
+                if (size() <= maxOpenStreams) {
+                    return false;
+                }
+                closeStream(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void write(ObjectProfileRecord record) {
+        long profileSize = 0L;
+        for (Map.Entry<String, byte[]> entry : record.getEncodedObjectByFilePath().entrySet()) {
+            try {
+                getStream(entry.getKey()).write(entry.getValue());
+                record.getSizeBudget().recordBytesWritten(entry.getKey(), entry.getValue().length);
+                profileSize += entry.getValue().length;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            getStream(record.getObjectProfileSizeFilePath())
+                    .write((profileSize + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private OutputStream getStream(String filePath) throws IOException {
+        OutputStream stream = openStreams.get(filePath);
+        if (stream == null) {
+            stream = new BufferedOutputStream(new FileOutputStream(filePath, true));
+            openStreams.put(filePath, stream);
+        }
+        return stream;
+    }
+
+    @Override
+    public void flush() {
+        for (OutputStream stream : openStreams.values()) {
+            try {
+                stream.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (OutputStream stream : openStreams.values()) {
+            closeStream(stream);
+        }
+        openStreams.clear();
+    }
+
+    private static void closeStream(OutputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import se.kth.castor.pankti.instrument.plugins.CaptureConfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes of object profiles written across all instrumented methods, against a
+ * global budget. A budget of 0 or less means unlimited.
+ */
+public class GlobalSizeBudget {
+    private final long maxBytes;
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private volatile boolean withinBudget = true;
+
+    public GlobalSizeBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static GlobalSizeBudget getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public void recordBytesWritten(long bytes) {
+        if (bytesWritten.addAndGet(bytes) >= maxBytes && maxBytes > 0) {
+            withinBudget = false;
+        }
+    }
+
+    public boolean isWithinBudget() {
+        return withinBudget;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    private static class InstanceHolder {
+        private static final GlobalSizeBudget INSTANCE =
+                new GlobalSizeBudget(CaptureConfig.getInstance().getMaxTotalObjectDataSizeBytes());
+    }
+}
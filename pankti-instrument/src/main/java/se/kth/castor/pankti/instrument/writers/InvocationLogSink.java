@@ -0,0 +1,116 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Appends all records of the process to one log, split into segments of a maximum size.
+ * Each record is written as a 4-byte length followed by the method FQN, the invocation id,
+ * the thread name and, for every object, the name of the object file it would have been
+ * appended to in files storage mode, the length of the encoded object, and the encoded object.
+ * Every segment "prefix-N.log" has an index "prefix-N.idx" with one line per record:
+ * offset TAB length TAB invocation id TAB object file names separated by TAB.
+ * pankti-generate uses the index to find the objects of a method without reading whole segments.
+ */
+public class InvocationLogSink implements ObjectProfileSink {
+    public static final String segmentFileExtension = ".log";
+    public static final String indexFileExtension = ".idx";
+
+    private final String segmentPathPrefix;
+    private final long maxSegmentBytes;
+    private int segmentNumber = 0;
+    private DataOutputStream segmentStream;
+    private Writer indexWriter;
+    private long segmentOffset;
+
+    public InvocationLogSink(String directory, String fileNamePrefix, long maxSegmentBytes) {
+        this.segmentPathPrefix = directory + fileNamePrefix + "-";
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    @Override
+    public void write(ObjectProfileRecord record) {
+        try {
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(1024);
+            DataOutputStream recordStream = new DataOutputStream(recordBytes);
+            recordStream.writeUTF(record.getMethodFQN());
+            recordStream.writeUTF(record.getInvocationId());
+            recordStream.writeUTF(record.getThreadName());
+            recordStream.writeShort(record.getEncodedObjectByFilePath().size());
+            StringBuilder indexLine = new StringBuilder();
+            for (Map.Entry<String, byte[]> entry : record.getEncodedObjectByFilePath().entrySet()) {
+                String objectFileName = new File(entry.getKey()).getName();
+                recordStream.writeUTF(objectFileName);
+                recordStream.writeInt(entry.getValue().length);
+                recordStream.write(entry.getValue());
+                indexLine.append('\t').append(objectFileName);
+            }
+            recordStream.flush();
+
+            if (segmentStream == null
+                    || (segmentOffset > 0 && maxSegmentBytes > 0 && segmentOffset + recordBytes.size() > maxSegmentBytes)) {
+                openNextSegment();
+            }
+            segmentStream.writeInt(recordBytes.size());
+            recordBytes.writeTo(segmentStream);
+            indexWriter.write(segmentOffset + "\t" + recordBytes.size() + "\t" + record.getInvocationId() + indexLine + "\n");
+            segmentOffset += Integer.BYTES + recordBytes.size();
+
+            for (Map.Entry<String, byte[]> entry : record.getEncodedObjectByFilePath().entrySet()) {
+                record.getSizeBudget().recordBytesWritten(entry.getKey(), entry.getValue().length);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Segments of earlier runs are never appended to, a new run starts at the first free number
+    private void openNextSegment() throws IOException {
+        close();
+        File segmentFile;
+        do {
+            segmentFile = new File(segmentPathPrefix + segmentNumber++ + segmentFileExtension);
+        } while (segmentFile.exists());
+        String segmentPath = segmentFile.getPath();
+        String indexPath = segmentPath.substring(0, segmentPath.length() - segmentFileExtension.length()) + indexFileExtension;
+        segmentStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segmentFile), 65536));
+        indexWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexPath), StandardCharsets.UTF_8));
+        segmentOffset = 0L;
+    }
+
+    @Override
+    public void flush() {
+        try {
+            if (segmentStream != null) {
+                // The segment first, so that the index never points past the end of the log
+                segmentStream.flush();
+                indexWriter.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (segmentStream != null) {
+                segmentStream.close();
+                indexWriter.close();
+                segmentStream = null;
+                indexWriter = null;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+import se.kth.castor.pankti.instrument.plugins.CaptureConfig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide set of the rows in invoked-methods.csv.
+ * The existing file is read once, after which membership checks do not touch the file,
+ * and new rows are appended through a single writer.
+ * When writes are deferred, new rows are kept in memory until they are flushed.
+ */
+public class InvokedMethodsRegistry {
+    private final Set<String> invokedMethods = ConcurrentHashMap.newKeySet();
+    private final Path invokedMethodsCSVFilePath;
+    // Null unless writes are deferred
+    private final List<String> pendingRows;
+    private BufferedWriter appender;
+
+    public InvokedMethodsRegistry(Path invokedMethodsCSVFilePath) {
+        this(invokedMethodsCSVFilePath, false);
+    }
+
+    public InvokedMethodsRegistry(Path invokedMethodsCSVFilePath, boolean deferWrites) {
+        this.invokedMethodsCSVFilePath = invokedMethodsCSVFilePath;
+        this.pendingRows = deferWrites ? new ArrayList<>() : null;
+        try {
+            if (!deferWrites || Files.exists(invokedMethodsCSVFilePath)) {
+                invokedMethods.addAll(Files.readAllLines(invokedMethodsCSVFilePath, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static InvokedMethodsRegistry getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public boolean contains(String rowInCSVFile) {
+        return invokedMethods.contains(rowInCSVFile);
+    }
+
+    // Returns true if the row was not in the file yet
+    public boolean register(String rowInCSVFile) {
+        if (!invokedMethods.add(rowInCSVFile)) {
+            return false;
+        }
+        if (pendingRows != null) {
+            synchronized (this) {
+                pendingRows.add(rowInCSVFile);
+            }
+        } else {
+            append(rowInCSVFile);
+        }
+        return true;
+    }
+
+    // Appends the deferred rows, creating the file with its header first if needed
+    public synchronized void flush() {
+        if (pendingRows == null || pendingRows.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(invokedMethodsCSVFilePath.toAbsolutePath().getParent());
+            AdviceTemplate.setUpInvokedMethodsCSVFile(invokedMethodsCSVFilePath.toFile());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        for (String rowInCSVFile : pendingRows) {
+            append(rowInCSVFile);
+        }
+        pendingRows.clear();
+    }
+
+    private synchronized void append(String rowInCSVFile) {
+        try {
+            if (appender == null) {
+                appender = Files.newBufferedWriter(invokedMethodsCSVFilePath, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            appender.write("\n");
+            appender.write(rowInCSVFile);
+            appender.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class InstanceHolder {
+        private static final InvokedMethodsRegistry INSTANCE = createInstance();
+
+        private static InvokedMethodsRegistry createInstance() {
+            // Memory capture mode writes the rows when MemoryCaptureStore dumps
+            if (CaptureConfig.getInstance().isMemoryCaptureEnabled()) {
+                return new InvokedMethodsRegistry(
+                        Paths.get(AdviceTemplate.storageDir, AdviceTemplate.invokedMethodsFileName), true);
+            }
+            try {
+                Files.createDirectories(Paths.get(AdviceTemplate.storageDir));
+                return new InvokedMethodsRegistry(
+                        Paths.get(AdviceTemplate.setUpInvokedMethodsCSVFile(AdviceTemplate.storageDir)));
+            } catch (Exception e) {
+                e.printStackTrace();
+                return new InvokedMethodsRegistry(
+                        Paths.get(AdviceTemplate.storageDir, AdviceTemplate.invokedMethodsFileName));
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import se.kth.castor.pankti.instrument.dedup.CapturedState;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serialized objects captured for one invocation, keyed by the object file they belong to.
+ * A record is handed to the writer as a whole, so an invocation is either written completely or not at all.
+ */
+public class ObjectProfileRecord {
+    private final Map<String, byte[]> encodedObjectByFilePath = new LinkedHashMap<>();
+    private final String methodFQN;
+    private final String invocationId;
+    private final String threadName = Thread.currentThread().getName();
+    private final String objectProfileSizeFilePath;
+    private final ObjectProfileSizeBudget sizeBudget;
+    // Null if the record was not created by a CapturedMethod
+    private final CapturedState capturedState;
+    private boolean discarded;
+
+    public ObjectProfileRecord(String methodFQN, String invocationId, String objectProfileSizeFilePath,
+                               ObjectProfileSizeBudget sizeBudget) {
+        this(methodFQN, invocationId, objectProfileSizeFilePath, sizeBudget, null);
+    }
+
+    // Created on the invoking thread
+    public ObjectProfileRecord(String methodFQN, String invocationId, String objectProfileSizeFilePath,
+                               ObjectProfileSizeBudget sizeBudget, CapturedState capturedState) {
+        this.capturedState = capturedState;
+        this.methodFQN = methodFQN;
+        this.invocationId = invocationId;
+        this.objectProfileSizeFilePath = objectProfileSizeFilePath;
+        this.sizeBudget = sizeBudget;
+    }
+
+    public void addEncodedObject(String objectFilePath, byte[] encodedObject) {
+        encodedObjectByFilePath.put(objectFilePath, encodedObject);
+    }
+
+    public Map<String, byte[]> getEncodedObjectByFilePath() {
+        return encodedObjectByFilePath;
+    }
+
+    // Called when one of the objects could not be serialized
+    public void discard() {
+        discarded = true;
+    }
+
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    public String getMethodFQN() {
+        return methodFQN;
+    }
+
+    public String getInvocationId() {
+        return invocationId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public String getObjectProfileSizeFilePath() {
+        return objectProfileSizeFilePath;
+    }
+
+    public ObjectProfileSizeBudget getSizeBudget() {
+        return sizeBudget;
+    }
+
+    // Forgotten by the deduplicator if the record is never written
+    public CapturedState getCapturedState() {
+        return capturedState;
+    }
+}
@@ -0,0 +1,13 @@
+package se.kth.castor.pankti.instrument.writers;
+
+/**
+ * Destination of the records drained by AsyncObjectProfileWriter.
+ * Only ever called from the writer thread.
+ */
+public interface ObjectProfileSink {
+    void write(ObjectProfileRecord record);
+
+    void flush();
+
+    void close();
+}
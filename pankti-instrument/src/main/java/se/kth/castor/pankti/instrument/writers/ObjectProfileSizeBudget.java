@@ -0,0 +1,67 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes written to each object file of one instrumented method.
+ * Sizes of files left by a previous run are read once, when the budget is created.
+ * After that, sizes come from the byte counts of the serialized objects, so checking
+ * the budget does not need to stat any file. A budget of 0 or less means unlimited.
+ */
+public class ObjectProfileSizeBudget {
+    private final Map<String, AtomicLong> bytesWrittenByFilePath = new ConcurrentHashMap<>();
+    private final long maxBytesPerFile;
+    private final GlobalSizeBudget globalSizeBudget;
+    private volatile boolean withinBudget = true;
+
+    public ObjectProfileSizeBudget(Collection<String> objectFilePaths, long maxBytesPerFile, GlobalSizeBudget globalSizeBudget) {
+        this.maxBytesPerFile = maxBytesPerFile;
+        this.globalSizeBudget = globalSizeBudget;
+        for (String objectFilePath : objectFilePaths) {
+            File objectFile = new File(objectFilePath);
+            long existingBytes = objectFile.exists() ? objectFile.length() : 0L;
+            bytesWrittenByFilePath.put(objectFilePath, new AtomicLong());
+            recordBytesWritten(objectFilePath, existingBytes);
+        }
+    }
+
+    public void recordBytesWritten(String objectFilePath, long bytes) {
+        long fileBytes = bytesWrittenByFilePath.computeIfAbsent(objectFilePath, k -> new AtomicLong()).addAndGet(bytes);
+        if (fileBytes >= maxBytesPerFile && maxBytesPerFile > 0) {
+            withinBudget = false;
+        }
+        globalSizeBudget.recordBytesWritten(bytes);
+    }
+
+    public boolean isWithinBudget() {
+        return withinBudget && globalSizeBudget.isWithinBudget();
+    }
+
+    public long getBytesWritten(String objectFilePath) {
+        AtomicLong bytesWritten = bytesWrittenByFilePath.get(objectFilePath);
+        return bytesWritten == null ? 0L : bytesWritten.get();
+    }
+
+    // Number of bytes the string takes once written as UTF-8
+    public static long utf8Length(CharSequence sequence) {
+        long length = 0L;
+        for (int i = 0; i < sequence.length(); i++) {
+            char c = sequence.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,118 @@
+package se.kth.castor.pankti.instrument.bounds;
+
+import com.thoughtworks.xstream.XStream;
+import org.junit.jupiter.api.Test;
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CaptureBoundsTest {
+    static class Node {
+        String name;
+        Node next;
+        List<Integer> values = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        Object[] children = new Object[0];
+        String cache = "cached";
+
+        Node(String name, Node next) {
+            this.name = name;
+            this.next = next;
+        }
+    }
+
+    private static Node createChain(int length) {
+        Node node = null;
+        for (int i = length; i > 0; i--) {
+            node = new Node("node" + i, node);
+        }
+        return node;
+    }
+
+    private static XStream createXStream(CaptureBounds bounds) {
+        XStream xStream = bounds.newXStream();
+        xStream.allowTypesByWildcard(new String[]{"se.kth.castor.pankti.**"});
+        return xStream;
+    }
+
+    @Test
+    public void testUnboundedXStreamIsUnchanged() {
+        assertTrue(CaptureBounds.UNBOUNDED.isUnbounded());
+        Node chain = createChain(5);
+        assertEquals(new XStream().toXML(chain), CaptureBounds.UNBOUNDED.newXStream().toXML(chain));
+    }
+
+    // Test that objects below the maximum depth are empty and marked, while values are still written
+    @Test
+    public void testMaxDepth() {
+        XStream xStream = createXStream(new CaptureBounds(2, 0, 0, Map.of()));
+        String xml = xStream.toXML(createChain(5));
+        assertTrue(xml.contains("<name>node3</name>"));
+        assertTrue(xml.contains("<next " + CaptureBounds.TRUNCATED_ATTRIBUTE + "=\"depth\"/>"));
+        assertFalse(xml.contains("node4"));
+
+        Node node = (Node) xStream.fromXML(xml);
+        assertEquals("node3", node.next.next.name);
+        assertNull(node.next.next.next.name);
+    }
+
+    // Test that only the first elements of collections, maps and object arrays are written
+    @Test
+    public void testMaxCollectionElements() {
+        Node node = createChain(1);
+        for (int i = 0; i < 5; i++) {
+            node.values.add(i);
+            node.index.put("key" + i, i);
+        }
+        node.children = new Object[]{"a", "b", "c"};
+        XStream xStream = createXStream(new CaptureBounds(0, 3, 0, Map.of()));
+        String xml = xStream.toXML(node);
+        assertTrue(xml.contains("<values " + CaptureBounds.TRUNCATED_ATTRIBUTE + "=\"elements\">"));
+        assertTrue(xml.contains("<index " + CaptureBounds.TRUNCATED_ATTRIBUTE + "=\"elements\">"));
+        assertTrue(xml.contains("<children>"));
+
+        Node deserialized = (Node) xStream.fromXML(xml);
+        assertEquals(List.of(0, 1, 2), deserialized.values);
+        assertEquals(3, deserialized.index.size());
+        assertArrayEquals(new Object[]{"a", "b", "c"}, deserialized.children);
+    }
+
+    // Test that objects are left empty once the snapshot reaches its maximum size
+    @Test
+    public void testMaxSnapshotSize() {
+        Node node = createChain(1);
+        node.children = new Object[100];
+        for (int i = 0; i < node.children.length; i++) {
+            node.children[i] = createChain(1);
+        }
+        String unbounded = createXStream(CaptureBounds.UNBOUNDED).toXML(node);
+        String bounded = createXStream(new CaptureBounds(0, 0, 1024, Map.of())).toXML(node);
+        assertTrue(bounded.contains(CaptureBounds.TRUNCATED_ATTRIBUTE + "=\"size\""));
+        assertTrue(bounded.length() < unbounded.length() / 2);
+    }
+
+    @Test
+    public void testOmittedFields() {
+        Map<String, Set<String>> omittedFields = CaptureBounds.parseOmittedFields(
+                Node.class.getName() + "#cache, " + Node.class.getName() + "#index,invalid");
+        assertEquals(Map.of(Node.class.getName(), Set.of("cache", "index")), omittedFields);
+        String xml = createXStream(new CaptureBounds(0, 0, 0, omittedFields)).toXML(createChain(2));
+        assertFalse(xml.contains("cache"));
+        assertFalse(xml.contains("<index"));
+        assertTrue(xml.contains("<name>node2</name>"));
+    }
+
+    // Test that XStreams are only rebuilt when the bounds change
+    @Test
+    public void testConverterRegistryBounds() {
+        ConverterRegistry registry = new ConverterRegistry(xStream -> xStream);
+        XStream xStream = registry.getXStream();
+        registry.setCaptureBounds(CaptureBounds.UNBOUNDED);
+        assertSame(xStream, registry.getXStream());
+        registry.setCaptureBounds(new CaptureBounds(1, 0, 0, Map.of()));
+        assertNotSame(xStream, registry.getXStream());
+        assertTrue(registry.getXStream().toXML(createChain(3)).contains(CaptureBounds.TRUNCATED_ATTRIBUTE));
+    }
+}
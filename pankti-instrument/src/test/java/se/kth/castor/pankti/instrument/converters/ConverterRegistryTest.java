@@ -0,0 +1,64 @@
+package se.kth.castor.pankti.instrument.converters;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConverterRegistryTest {
+    static class Unserializable {
+        final String secret = "secret";
+    }
+
+    static class OmittingConverter implements Converter {
+        @Override
+        public void marshal(Object o, HierarchicalStreamWriter writer, MarshallingContext context) {
+        }
+
+        @Override
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            return null;
+        }
+
+        @Override
+        public boolean canConvert(Class aClass) {
+            return aClass == Unserializable.class;
+        }
+    }
+
+    // Test that every thread gets its own XStream, which is rebuilt once a converter is registered
+    @Test
+    public void testThreadConfinedXStreams() throws Exception {
+        ConverterRegistry registry = new ConverterRegistry(xStream -> xStream);
+        XStream xStream = registry.getXStream();
+        assertSame(xStream, registry.getXStream());
+        XStream otherThreadXStream = CompletableFuture.supplyAsync(registry::getXStream).get();
+        assertNotSame(xStream, otherThreadXStream);
+        assertTrue(xStream.toXML(new Unserializable()).contains("secret"));
+
+        registry.registerConverter(new OmittingConverter());
+        XStream rebuiltXStream = registry.getXStream();
+        assertNotSame(xStream, rebuiltXStream);
+        assertFalse(rebuiltXStream.toXML(new Unserializable()).contains("secret"));
+        // The XStream built before the registration is left untouched
+        assertTrue(xStream.toXML(new Unserializable()).contains("secret"));
+    }
+
+    // Test that registering a converter for an already converted class leaves the XStreams as they are
+    @Test
+    public void testConverterIsRegisteredOncePerClass() {
+        ConverterRegistry registry = new ConverterRegistry(xStream -> xStream);
+        registry.registerConverter(Unserializable.class.getCanonicalName(), new OmittingConverter());
+        XStream xStream = registry.getXStream();
+        registry.registerConverter(Unserializable.class.getCanonicalName(), new OmittingConverter());
+        assertSame(xStream, registry.getXStream());
+        assertFalse(xStream.toXML(new Unserializable()).contains("secret"));
+    }
+}
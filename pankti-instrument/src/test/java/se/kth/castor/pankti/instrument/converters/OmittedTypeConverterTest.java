@@ -0,0 +1,79 @@
+package se.kth.castor.pankti.instrument.converters;
+
+import com.thoughtworks.xstream.XStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OmittedTypeConverterTest {
+    @TempDir
+    Path tempDir;
+
+    static class Worker extends Thread {
+    }
+
+    static class Account {
+        final String owner = "owner";
+        final ReentrantLock lock = new ReentrantLock();
+        final List<Object> resources = new ArrayList<>(List.of(new Worker(), ClassLoader.getSystemClassLoader()));
+    }
+
+    // Test that subtypes of the bundled types are omitted, and that other types are not
+    @Test
+    public void testBundledTypes() {
+        OmittedTypeConverter converter = OmittedTypeConverter.fromDefaults();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertTrue(converter.isOmitted(executor.getClass()));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(converter.isOmitted(Worker.class));
+        assertTrue(converter.isOmitted(ReentrantReadWriteLock.ReadLock.class));
+        assertTrue(converter.isOmitted(ClassLoader.getSystemClassLoader().getClass()));
+        assertFalse(converter.isOmitted(String.class));
+        assertFalse(converter.isOmitted(Account.class));
+        assertFalse(converter.isOmitted(null));
+    }
+
+    // Test that the first serialization of an object holding unserializable fields succeeds
+    @Test
+    public void testOmittedFieldsAreEmpty() {
+        XStream xStream = AdviceTemplate.converterRegistry.getXStream();
+        String xml = xStream.toXML(new Account());
+        assertTrue(xml.contains("<owner>owner</owner>"));
+        assertTrue(xml.contains("<lock/>"));
+        assertFalse(xml.contains("sync"));
+        Account account = (Account) xStream.fromXML(xml);
+        assertEquals("owner", account.owner);
+        assertNull(account.lock);
+    }
+
+    // Test that types and packages listed in a file are omitted once the file is registered
+    @Test
+    public void testTypesFile() throws Exception {
+        Path typesFile = tempDir.resolve("omitted-types.txt");
+        Files.writeString(typesFile, "# application types\n\n" + Account.class.getName() + "\njava.time.*\n");
+        OmittedTypeConverter converter = OmittedTypeConverter.fromFile(typesFile);
+        assertTrue(converter.isOmitted(Account.class));
+        assertTrue(converter.isOmitted(java.time.LocalDate.class));
+        assertFalse(converter.isOmitted(Worker.class));
+
+        ConverterRegistry registry = new ConverterRegistry(xStream -> xStream);
+        registry.registerOmittedTypesFile(typesFile.toString());
+        registry.registerOmittedTypesFile(typesFile.toString());
+        assertEquals("<se.kth.castor.pankti.instrument.converters.OmittedTypeConverterTest_-Account/>",
+                registry.getXStream().toXML(new Account()));
+    }
+}
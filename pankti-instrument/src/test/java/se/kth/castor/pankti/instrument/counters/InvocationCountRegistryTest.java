@@ -0,0 +1,48 @@
+package se.kth.castor.pankti.instrument.counters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.AttributeNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvocationCountRegistryTest {
+    @TempDir
+    Path tempDir;
+
+    // Test that concurrent increments are not lost and all methods end up in one file
+    @Test
+    public void testCountsAreFlushedToSingleFile() throws Exception {
+        Path countsFile = tempDir.resolve("invocation-counts.txt");
+        InvocationCountRegistry registry = new InvocationCountRegistry(countsFile);
+        LongAdder counterA = registry.register("a.b.C.m1");
+        LongAdder counterB = registry.register("a.b.C.m2_int,java.lang.String");
+        IntStream.range(0, 10000).parallel().forEach(i -> counterA.increment());
+        counterB.increment();
+        registry.flush();
+
+        assertEquals(List.of("a.b.C.m1\t10000", "a.b.C.m2_int,java.lang.String\t1"), Files.readAllLines(countsFile));
+        assertEquals(10001L, registry.getAttribute("TotalInvocationCount"));
+        assertEquals(1L, registry.getAttribute("a.b.C.m2_int,java.lang.String"));
+        assertThrows(AttributeNotFoundException.class, () -> registry.getAttribute("a.b.C.m3"));
+    }
+
+    // Test that counts from a previous run are carried over
+    @Test
+    public void testPreviousCountsAreLoaded() {
+        Path countsFile = tempDir.resolve("invocation-counts.txt");
+        InvocationCountRegistry registry = new InvocationCountRegistry(countsFile);
+        registry.register("a.b.C.m1").add(5);
+        registry.flush();
+
+        InvocationCountRegistry nextRegistry = new InvocationCountRegistry(countsFile);
+        nextRegistry.register("a.b.C.m1").increment();
+        assertEquals(6, nextRegistry.getCount("a.b.C.m1"));
+    }
+}
@@ -0,0 +1,74 @@
+package se.kth.castor.pankti.instrument.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StateDeduplicatorTest {
+    static final ConverterRegistry converterRegistry = AdviceTemplate.converterRegistry;
+
+    @TempDir
+    Path tempDir;
+
+    // Test that equal states hash the same, whatever the identity of the objects
+    @Test
+    public void testStructuralHash() {
+        StateDeduplicator deduplicator = new StateDeduplicator("a.B.m", converterRegistry, 10);
+        List<Integer> receiving = new ArrayList<>(Arrays.asList(1, 2));
+        StateHash hash = deduplicator.hashState(receiving, new Object[]{"x", 3});
+        assertEquals(hash, deduplicator.hashState(new ArrayList<>(Arrays.asList(1, 2)), new Object[]{"x", 3}));
+        assertNotEquals(hash, deduplicator.hashState(receiving, new Object[]{"x", 4}));
+        assertNotEquals(hash, deduplicator.hashState(new ArrayList<>(Arrays.asList(12)), new Object[]{"x", 3}));
+    }
+
+    // Test that repeated states are skipped and counted against the captured invocation
+    @Test
+    public void testRepeatedStatesAreCounted() {
+        StateDeduplicator deduplicator = new StateDeduplicator("a.B.m", converterRegistry, 10);
+        CapturedState state = deduplicator.registerState("receiver", new Object[]{1}, () -> "1.1.0");
+        assertNotNull(state);
+        assertNull(deduplicator.registerState("receiver", new Object[]{1}, () -> "1.1.1"));
+        assertNull(deduplicator.registerState("receiver", new Object[]{1}, () -> "1.1.2"));
+        assertNotNull(deduplicator.registerState("receiver", new Object[]{2}, () -> "1.1.3"));
+        assertEquals(Map.of("1.1.0", 3L, "1.1.3", 1L), deduplicator.getMultiplicities());
+
+        // The next invocation is captured if the first one is not written
+        deduplicator.forget(state);
+        assertNotNull(deduplicator.registerState("receiver", new Object[]{1}, () -> "1.1.4"));
+    }
+
+    // Test that states beyond the maximum are captured without being tracked, and that 0 disables deduplication
+    @Test
+    public void testMaxStates() {
+        StateDeduplicator deduplicator = new StateDeduplicator("a.B.m", converterRegistry, 1);
+        assertNotNull(deduplicator.registerState("receiver", new Object[]{1}, () -> "1.1.0"));
+        assertNotNull(deduplicator.registerState("receiver", new Object[]{2}, () -> "1.1.1"));
+        assertNotNull(deduplicator.registerState("receiver", new Object[]{2}, () -> "1.1.2"));
+        StateDeduplicator disabled = new StateDeduplicator("a.B.m", converterRegistry, 0);
+        assertFalse(disabled.isEnabled());
+        assertNotNull(disabled.registerState("receiver", new Object[]{1}, () -> "1.1.0"));
+        assertNotNull(disabled.registerState("receiver", new Object[]{1}, () -> "1.1.1"));
+    }
+
+    @Test
+    public void testMultiplicitiesAreFlushed() throws Exception {
+        Path multiplicitiesFile = tempDir.resolve(StateMultiplicityRegistry.multiplicitiesFileName);
+        Files.writeString(multiplicitiesFile, "a.B.m\t1.1.0\t5\n");
+        StateMultiplicityRegistry registry = new StateMultiplicityRegistry(multiplicitiesFile);
+        StateDeduplicator deduplicator = registry.register(new StateDeduplicator("a.B.n", converterRegistry, 10));
+        deduplicator.registerState(null, new Object[0], () -> "2.1.0");
+        deduplicator.registerState(null, new Object[0], () -> "2.1.1");
+        registry.flush();
+        assertEquals(List.of("a.B.m\t1.1.0\t5", "a.B.n\t2.1.0\t2"), Files.readAllLines(multiplicitiesFile));
+    }
+}
@@ -0,0 +1,90 @@
+package se.kth.castor.pankti.instrument.encoders;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import org.junit.jupiter.api.Test;
+import se.kth.castor.pankti.instrument.converters.ConverterRegistry;
+import se.kth.castor.pankti.instrument.plugins.AdviceTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObjectProfileEncoderTest {
+    static final ConverterRegistry converterRegistry = AdviceTemplate.converterRegistry;
+    static final XStream xStream = converterRegistry.getXStream();
+    static final Object[] paramObjects = {"param\u0001", 42, new ArrayList<>(Arrays.asList(1.5, 2.5)), new HashMap<>(Map.of("key", Thread.currentThread()))};
+
+    @Test
+    public void testXMLEncoding() throws Exception {
+        ObjectProfileEncoder encoder = ObjectProfileEncoder.forFormat("xml", converterRegistry);
+        String xml = new String(encoder.encode(paramObjects, "1.1.0"), StandardCharsets.UTF_8);
+        assertEquals(".xml", encoder.getFileExtension());
+        assertTrue(xml.startsWith("<!-- invocation 1.1.0 -->\n<object-array>"));
+        assertTrue(xml.endsWith("</object-array>\n"));
+        assertTrue(xml.contains("&amp;#x1;"));
+    }
+
+    // Test that binary records are length-prefixed and use the same converters as XML
+    @Test
+    public void testBinaryEncodingRoundTrip() throws Exception {
+        ObjectProfileEncoder encoder = ObjectProfileEncoder.forFormat("binary", converterRegistry);
+        byte[] record = encoder.encode(paramObjects, "1.1.0");
+        assertEquals(".bin", encoder.getFileExtension());
+
+        DataInputStream recordStream = new DataInputStream(new ByteArrayInputStream(record));
+        int length = recordStream.readInt();
+        assertEquals(record.length - Integer.BYTES, length);
+        assertEquals("1.1.0", recordStream.readUTF());
+        Object[] decoded = (Object[]) xStream.unmarshal(new BinaryStreamReader(recordStream));
+        assertEquals("param\u0001", decoded[0]);
+        assertEquals(42, decoded[1]);
+        assertEquals(List.of(1.5, 2.5), decoded[2]);
+        // ThreadConverter omits threads
+        assertNull(((Map<?, ?>) decoded[3]).get("key"));
+        assertTrue(record.length < xStream.toXML(paramObjects).length());
+    }
+
+    // Test that each compressed object is a gzip member, and that members can be read as one stream
+    @Test
+    public void testCompressedEncoding() throws Exception {
+        ObjectProfileEncoder encoder = ObjectProfileEncoder.forFormat("xml", true, converterRegistry);
+        assertEquals(".xml.gz", encoder.getFileExtension());
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(encoder.encode(paramObjects, "1.1.0"));
+        file.write(encoder.encode(paramObjects, "1.1.0"));
+
+        byte[] xml = ObjectProfileEncoder.forFormat("xml", converterRegistry).encode(paramObjects, "1.1.0");
+        try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(file.toByteArray()))) {
+            String decompressed = new String(gzipStream.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(new String(xml, StandardCharsets.UTF_8).repeat(2), decompressed);
+        }
+        assertTrue(file.size() < 2 * xml.length);
+    }
+
+    // Test that streaming into the buffer gives the same bytes as escaping the XML string afterwards
+    @Test
+    public void testStreamingXMLMatchesStringXML() throws Exception {
+        Map<String, Object> object = new HashMap<>();
+        object.put("text", "a&b<c>\"d'\r\n\t\0\u0007 &#x41; é€😀");
+        object.put("long", "😀".repeat(2000) + "x\u0001".repeat(500));
+        object.put("nested", new ArrayList<>(Arrays.asList(paramObjects)));
+        String xml = xStream.toXML(object).replaceAll("(&#x)(\\w+;)", "&amp;#x$2");
+        String expected = "<!-- invocation 1.1.0 -->\n" + xml + "\n";
+
+        ObjectProfileEncoder encoder = ObjectProfileEncoder.forFormat("xml", converterRegistry);
+        for (int i = 0; i < 2; i++) {
+            EncodingBuffer buffer = encoder.encodeToBuffer(object, "1.1.0");
+            assertEquals(expected, new String(buffer.array(), 0, buffer.size(), StandardCharsets.UTF_8));
+        }
+    }
+}
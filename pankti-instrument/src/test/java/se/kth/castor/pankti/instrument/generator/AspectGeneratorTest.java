@@ -0,0 +1,93 @@
+package se.kth.castor.pankti.instrument.generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AspectGeneratorTest {
+    static final List<String> candidatesCSV = List.of(
+            "visibility,parent-FQN,method-name,param-list,return-type,param-signature,nested-invocations,noparam-constructor,tags",
+            "public,a.B,compute,\"[int, T[], java.lang.String]\",java.lang.String,I[Ljava/lang/Object;Ljava/lang/String;,{},true,\"{returns=true, ifs=false}\"",
+            "private,a.B,reset,[],void,,{},true,{}");
+
+    @Test
+    public void testParseCSV() {
+        List<Map<String, String>> candidates = AspectGenerator.parseCSV(candidatesCSV);
+        assertEquals(2, candidates.size());
+        assertEquals("[int, T[], java.lang.String]", candidates.get(0).get("param-list"));
+        assertEquals("{returns=true, ifs=false}", candidates.get(0).get("tags"));
+        assertEquals("void", candidates.get(1).get("return-type"));
+        assertEquals(List.of("int", "java.lang.Object[]", "java.lang.String"),
+                AspectGenerator.parseParamList(candidates.get(0).get("param-list")));
+        assertEquals(List.of(), AspectGenerator.parseParamList(candidates.get(1).get("param-list")));
+        assertEquals("public,a.B,compute,\"[int,T[],java.lang.String]\",java.lang.String,"
+                        + "I[Ljava/lang/Object;Ljava/lang/String;,{},true,\"{returns=true,ifs=false}\"",
+                AspectGenerator.toInvokedMethodsRow(candidates.get(0)));
+    }
+
+    // Test that every method gets an id in the table, with the row written to invoked-methods.csv
+    @Test
+    public void testGeneratedMethodTable() {
+        List<String> table = AspectGenerator.generateMethodTable(AspectGenerator.parseCSV(candidatesCSV));
+        assertEquals(2, table.size());
+        assertEquals("0\ta.B\tcompute\tint,java.lang.Object[],java.lang.String\tfalse\t"
+                + "public,a.B,compute,\"[int,T[],java.lang.String]\",java.lang.String,"
+                + "I[Ljava/lang/Object;Ljava/lang/String;,{},true,\"{returns=true,ifs=false}\"", table.get(0));
+        assertEquals("1\ta.B\treset\t\ttrue\tprivate,a.B,reset,[],void,,{},true,{}", table.get(1));
+    }
+
+    // Test that methods are grouped by class, and that long patterns are split across advice classes
+    @Test
+    public void testGeneratedAspects() {
+        List<Map<String, String>> candidates = new ArrayList<>(AspectGenerator.parseCSV(candidatesCSV));
+        List<Map<String, Set<String>>> pointcuts = AspectGenerator.groupIntoPointcuts(candidates);
+        assertEquals(1, pointcuts.size());
+        String aspect = AspectGenerator.generateAspect(1, pointcuts.get(0));
+        assertTrue(aspect.contains("public class MethodAspect1 {"));
+        assertTrue(aspect.contains("className = \"a.B\","));
+        assertTrue(aspect.contains("methodName = \"compute|reset\","));
+        assertTrue(aspect.contains("methodParameterTypes = {\"..\"})"));
+        assertTrue(aspect.contains("@BindMethodMeta MethodMeta methodMeta"));
+        assertTrue(aspect.contains("onReturn(@BindOptionalReturn OptionalReturn optionalReturn,"));
+
+        String longClassName = "a." + "C".repeat(AspectGenerator.MAX_PATTERN_LENGTH / 2);
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> candidate = new LinkedHashMap<>(candidates.get(0));
+            candidate.put("parent-FQN", longClassName + i);
+            candidates.add(candidate);
+        }
+        pointcuts = AspectGenerator.groupIntoPointcuts(candidates);
+        assertEquals(3, pointcuts.size());
+        assertEquals(Set.of("a.B", longClassName + 0), pointcuts.get(0).keySet());
+        for (Map<String, Set<String>> pointcut : pointcuts) {
+            assertTrue(AspectGenerator.classNamePattern(pointcut).length() <= AspectGenerator.MAX_PATTERN_LENGTH);
+        }
+    }
+
+    // Test that previously generated aspects are replaced, and that MethodAspect0 is kept
+    @Test
+    public void testGenerate(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        Files.writeString(pluginsDir.resolve("MethodAspect0.java"), "");
+        Files.writeString(pluginsDir.resolve("MethodAspect7.java"), "");
+        Path pluginJson = tempDir.resolve("glowroot.plugin.json");
+        Files.writeString(pluginJson, "{\n  \"properties\": [\n  ],\n  \"aspects\": [\n    \"old.MethodAspect7\"\n  ]\n}\n");
+        Path candidatesFile = tempDir.resolve("candidates.csv");
+        Files.write(candidatesFile, candidatesCSV);
+
+        AspectGenerator generator = new AspectGenerator(pluginsDir, pluginJson);
+        assertEquals(1, generator.generate(candidatesFile));
+        assertTrue(Files.exists(pluginsDir.resolve("MethodAspect0.java")));
+        assertTrue(Files.exists(pluginsDir.resolve("MethodAspect1.java")));
+        assertEquals(2, Files.readAllLines(tempDir.resolve(AspectGenerator.METHOD_TABLE_FILE_NAME)).size());
+        assertFalse(Files.exists(pluginsDir.resolve("MethodAspect7.java")));
+        assertEquals("{\n  \"properties\": [\n  ],\n  \"aspects\": [\n"
+                        + "    \"se.kth.castor.pankti.instrument.plugins.MethodAspect1\"\n  ]\n}\n",
+                Files.readString(pluginJson));
+    }
+}
@@ -0,0 +1,119 @@
+package se.kth.castor.pankti.instrument.memory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.castor.pankti.instrument.writers.FileObjectProfileSink;
+import se.kth.castor.pankti.instrument.writers.GlobalSizeBudget;
+import se.kth.castor.pankti.instrument.writers.ObjectProfileRecord;
+import se.kth.castor.pankti.instrument.writers.ObjectProfileSizeBudget;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryCaptureStoreTest {
+    @TempDir
+    Path tempDir;
+
+    private final ObjectProfileSizeBudget sizeBudget = new ObjectProfileSizeBudget(List.of(), 0, new GlobalSizeBudget(0));
+
+    // Every record is 12 bytes
+    private ObjectProfileRecord createRecord(int i) {
+        ObjectProfileRecord record = new ObjectProfileRecord("method", "1.1." + i, tempDir.resolve("sizes.txt").toString(), sizeBudget);
+        record.addEncodedObject(tempDir.resolve("receiving.xml").toString(), ("<int>" + i + "</int>").getBytes());
+        return record;
+    }
+
+    // Test that the oldest records are evicted once the buffer holds its maximum number of records
+    @Test
+    public void testRecordsAreEvictedByCount() {
+        List<ObjectProfileRecord> evicted = new ArrayList<>();
+        RecordRingBuffer ringBuffer = new RecordRingBuffer("method", 3, 0, evicted::add);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ringBuffer.add(createRecord(i)));
+        }
+        assertEquals(3, ringBuffer.size());
+        assertEquals(36, ringBuffer.getBytes());
+        assertEquals(2, ringBuffer.getEvictedRecords());
+        assertEquals(List.of("1.1.0", "1.1.1"), invocationIds(evicted));
+        assertEquals(List.of("1.1.2", "1.1.3", "1.1.4"), invocationIds(ringBuffer.drain()));
+        assertEquals(0, ringBuffer.size());
+        assertEquals(0, ringBuffer.getBytes());
+    }
+
+    // Test that the buffer never holds more bytes than its limit, and rejects records larger than the limit
+    @Test
+    public void testRecordsAreEvictedBySize() {
+        List<ObjectProfileRecord> evicted = new ArrayList<>();
+        RecordRingBuffer ringBuffer = new RecordRingBuffer("method", 100, 30, evicted::add);
+        for (int i = 0; i < 4; i++) {
+            ringBuffer.add(createRecord(i));
+            assertTrue(ringBuffer.getBytes() <= 30);
+        }
+        assertEquals(List.of("1.1.2", "1.1.3"), invocationIds(ringBuffer.drain()));
+
+        ObjectProfileRecord largeRecord = createRecord(4);
+        largeRecord.addEncodedObject(tempDir.resolve("params.xml").toString(), new byte[20]);
+        assertFalse(ringBuffer.add(largeRecord));
+        assertEquals(0, ringBuffer.size());
+    }
+
+    // Test that a dump writes the same object files as async capture, and empties the buffers
+    @Test
+    public void testDumpWritesObjectFiles() throws Exception {
+        MemoryCaptureStore store = new MemoryCaptureStore(2, 0, FileObjectProfileSink::new);
+        RecordRingBuffer ringBuffer = store.newRingBuffer("method", record -> { });
+        for (int i = 0; i < 3; i++) {
+            ringBuffer.add(createRecord(i));
+        }
+        assertEquals(2, store.getBufferedInvocations());
+        assertEquals(1, store.getEvictedInvocations());
+        assertFalse(Files.exists(tempDir.resolve("receiving.xml")));
+
+        assertEquals(2, store.dump());
+        assertEquals(List.of("<int>1</int><int>2</int>"), Files.readAllLines(tempDir.resolve("receiving.xml")));
+        assertEquals(List.of("12", "12"), Files.readAllLines(tempDir.resolve("sizes.txt")));
+        assertEquals(0, store.getBufferedInvocations());
+        assertEquals(0, store.dump());
+    }
+
+    // Test that every dump also writes what the registries keep in memory
+    @Test
+    public void testDumpWritesRegistries() {
+        AtomicInteger registryDumps = new AtomicInteger();
+        MemoryCaptureStore store = new MemoryCaptureStore(2, 0, FileObjectProfileSink::new,
+                registryDumps::incrementAndGet);
+        store.newRingBuffer("method", record -> { }).add(createRecord(0));
+        assertEquals(0, registryDumps.get());
+        store.dump();
+        assertEquals(1, registryDumps.get());
+    }
+
+    // Test that the trigger file dumps once and is deleted
+    @Test
+    public void testDumpIsTriggeredByFile() throws Exception {
+        MemoryCaptureStore store = new MemoryCaptureStore(10, 0, FileObjectProfileSink::new);
+        store.newRingBuffer("method", record -> { }).add(createRecord(0));
+        Path triggerFile = tempDir.resolve("dump-trigger");
+        assertFalse(store.dumpIfTriggered(triggerFile));
+        assertEquals(1, store.getBufferedInvocations());
+
+        Files.createFile(triggerFile);
+        assertTrue(store.dumpIfTriggered(triggerFile));
+        assertFalse(Files.exists(triggerFile));
+        assertEquals(0, store.getBufferedInvocations());
+        assertTrue(Files.exists(tempDir.resolve("receiving.xml")));
+    }
+
+    private static List<String> invocationIds(List<ObjectProfileRecord> records) {
+        List<String> invocationIds = new ArrayList<>();
+        for (ObjectProfileRecord record : records) {
+            invocationIds.add(record.getInvocationId());
+        }
+        return invocationIds;
+    }
+}
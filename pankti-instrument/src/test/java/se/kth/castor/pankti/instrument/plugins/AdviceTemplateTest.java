@@ -15,13 +15,14 @@ public class AdviceTemplateTest {
         return files.values().stream().filter(v -> v.contains(pathName) & v.endsWith(extension)).count();
     }
 
-    // Test that 4 xml, 2 txt, and 1 csv file are set up
+    // Test that 4 xml and 1 txt file are set up per method, along with the shared txt and csv files
     @Test
     public void testFileSetup() {
         assertEquals(7, files.size());
         assertEquals(4, filterFileByExtension(".xml"));
-        assertEquals(2, filterFileByExtension(".txt"));
+        assertEquals(1, filterFileByExtension(".txt"));
         assertEquals(1, files.values().stream().filter(v -> v.endsWith(".csv")).count());
         assertFalse(files.get(Type.INVOKED_METHODS).contains(pathName));
+        assertFalse(files.get(Type.INVOCATION_COUNT).contains(pathName));
     }
 }
@@ -0,0 +1,102 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CapturedMethodTest {
+    // Objects of this type are counted every time they are hashed or encoded
+    static final AtomicInteger marshalledObjects = new AtomicInteger();
+
+    static class Tracked {
+    }
+
+    @BeforeAll
+    public static void setUp() {
+        CaptureConfig.setInstance(CaptureConfig.of(Map.of("traceMode", "none")));
+        AdviceTemplate.converterRegistry.registerConverter(new Converter() {
+            @Override
+            public void marshal(Object o, HierarchicalStreamWriter writer, MarshallingContext context) {
+                marshalledObjects.incrementAndGet();
+            }
+
+            @Override
+            public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+                return null;
+            }
+
+            @Override
+            public boolean canConvert(Class type) {
+                return Tracked.class.equals(type);
+            }
+        });
+    }
+
+    @AfterAll
+    public static void tearDown() throws IOException {
+        String prefix = CapturedMethodTest.class.getName() + ".";
+        List<Path> objectFiles;
+        try (Stream<Path> paths = Files.list(Paths.get(AdviceTemplate.storageDir))) {
+            objectFiles = paths.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .collect(Collectors.toList());
+        }
+        for (Path objectFile : objectFiles) {
+            Files.delete(objectFile);
+        }
+    }
+
+    static CapturedMethod newCapturedMethod(String methodName, Map<String, ?> properties) throws IOException {
+        String table = "0\t" + CapturedMethodTest.class.getName() + "\t" + methodName + "\t\tfalse\tpublic";
+        Map<String, Object> config = new HashMap<>(properties);
+        config.put("traceMode", "none");
+        return new CapturedMethod(0,
+                MethodTable.load(new ByteArrayInputStream(table.getBytes(StandardCharsets.UTF_8))),
+                CaptureConfig.of(config));
+    }
+
+    static Invocation invoke(CapturedMethod capturedMethod, String methodName) {
+        Invocation invocation = capturedMethod.onBefore(null, new Tracked(), new Object[]{new Tracked()}, methodName);
+        capturedMethod.onReturn(new Tracked(), invocation);
+        return invocation;
+    }
+
+    // Test that invocations rejected by the sampler never reach the state hasher or the encoder
+    @Test
+    public void testSampledOutInvocationsAreNotSerialized() throws Exception {
+        CapturedMethod sampledOut = newCapturedMethod("sampledOut", Map.of(
+                "deduplicateStates", true, "samplingPolicy", "probability", "samplingProbability", 0.0));
+        for (int i = 0; i < 10; i++) {
+            Invocation invocation = invoke(sampledOut, "sampledOut");
+            assertFalse(invocation.isCaptured());
+            assertNull(invocation.getInvocationId());
+        }
+        assertEquals(0, marshalledObjects.get());
+
+        CapturedMethod captured = newCapturedMethod("captured", Map.of("deduplicateStates", true));
+        Invocation invocation = invoke(captured, "captured");
+        assertTrue(invocation.isCaptured());
+        // Process id and start time of the run, thread id and sequence number
+        assertTrue(invocation.getInvocationId().matches("\\d+-\\d+\\.\\d+\\.\\d+"));
+        assertTrue(marshalledObjects.get() > 0);
+    }
+}
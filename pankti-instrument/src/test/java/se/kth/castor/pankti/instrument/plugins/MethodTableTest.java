@@ -0,0 +1,38 @@
+package se.kth.castor.pankti.instrument.plugins;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MethodTableTest {
+    static final String table = "0\ta.B\tcompute\tint,java.lang.Object[]\tfalse\tpublic,a.B,compute\n"
+            + "1\ta.B\treset\t\ttrue\tprivate,a.B,reset\n"
+            + "\n";
+
+    @Test
+    public void testLoad() throws Exception {
+        MethodTable methodTable = MethodTable.load(new ByteArrayInputStream(table.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, methodTable.size());
+        assertEquals("a.B", methodTable.getClassName(0));
+        assertEquals("compute", methodTable.getMethodName(0));
+        assertEquals(List.of("int", "java.lang.Object[]"), methodTable.getParameterTypes(0));
+        assertFalse(methodTable.isReturnTypeVoid(0));
+        assertEquals("public,a.B,compute", methodTable.getRowInCSVFile(0));
+        assertEquals(List.of(), methodTable.getParameterTypes(1));
+        assertTrue(methodTable.isReturnTypeVoid(1));
+    }
+
+    // Test that overloads and methods of the same name in other classes are not resolved
+    @Test
+    public void testGetMethodId() throws Exception {
+        MethodTable methodTable = MethodTable.load(new ByteArrayInputStream(table.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, methodTable.getMethodId(MethodTable.methodKey("a.B", "compute", List.of("int", "java.lang.Object[]"))));
+        assertEquals(1, methodTable.getMethodId(MethodTable.methodKey("a.B", "reset", List.of())));
+        assertEquals(-1, methodTable.getMethodId(MethodTable.methodKey("a.B", "compute", List.of("int"))));
+        assertEquals(-1, methodTable.getMethodId(MethodTable.methodKey("a.C", "reset", List.of())));
+    }
+}
@@ -0,0 +1,65 @@
+package se.kth.castor.pankti.instrument.sampling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SamplerTest {
+    @Test
+    public void testSamplingPolicyFromString() {
+        assertEquals(SamplingPolicy.FIRST_N, SamplingPolicy.fromString("first-n"));
+        assertEquals(SamplingPolicy.RESERVOIR, SamplingPolicy.fromString(" Reservoir "));
+        assertEquals(SamplingPolicy.ALL, SamplingPolicy.fromString("unknown"));
+    }
+
+    @Test
+    public void testFirstNSampler() {
+        FirstNSampler sampler = new FirstNSampler(2);
+        assertTrue(sampler.shouldCapture());
+        assertTrue(sampler.shouldCapture());
+        assertFalse(sampler.shouldCapture());
+        assertFalse(sampler.shouldCapture());
+    }
+
+    @Test
+    public void testProbabilitySampler() {
+        assertTrue(new ProbabilitySampler(1.0).shouldCapture());
+        assertFalse(new ProbabilitySampler(0.0).shouldCapture());
+    }
+
+    // Test that a burst of one second is allowed, and that tokens are refilled at the configured rate
+    @Test
+    public void testRateLimitingSampler() {
+        RateLimitingSampler sampler = new RateLimitingSampler(2);
+        long now = System.nanoTime();
+        assertTrue(sampler.shouldCapture(now));
+        assertTrue(sampler.shouldCapture(now));
+        assertFalse(sampler.shouldCapture(now));
+        assertFalse(sampler.shouldCapture(now + TimeUnit.MILLISECONDS.toNanos(400)));
+        assertTrue(sampler.shouldCapture(now + TimeUnit.MILLISECONDS.toNanos(500)));
+        assertFalse(sampler.shouldCapture(now + TimeUnit.MILLISECONDS.toNanos(500)));
+    }
+
+    // Test that the first invocations of every window fill the reservoir, and that later ones are sampled
+    @Test
+    public void testReservoirSampler() {
+        long windowNanos = TimeUnit.SECONDS.toNanos(60);
+        ReservoirSampler sampler = new ReservoirSampler(3, windowNanos);
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sampler.shouldCapture(now));
+        }
+        int captured = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (sampler.shouldCapture(now)) {
+                captured++;
+            }
+        }
+        assertTrue(captured > 0 && captured < 100);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sampler.shouldCapture(now + windowNanos));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncObjectProfileWriterTest {
+    @TempDir
+    Path tempDir;
+
+    private final ObjectProfileSizeBudget sizeBudget = new ObjectProfileSizeBudget(List.of(), 0, new GlobalSizeBudget(0));
+
+    private ObjectProfileRecord createRecord(int i) {
+        ObjectProfileRecord record = new ObjectProfileRecord("method", "1.1." + i, tempDir.resolve("sizes.txt").toString(), sizeBudget);
+        record.addEncodedObject(tempDir.resolve("receiving.xml").toString(), ("<int>" + i + "</int>\n").getBytes());
+        record.addEncodedObject(tempDir.resolve("returned.xml").toString(), "<string>a</string>\n".getBytes());
+        return record;
+    }
+
+    // Test that all objects of an invocation and its profile size are written
+    @Test
+    public void testRecordsAreWritten() throws Exception {
+        AsyncObjectProfileWriter writer = new AsyncObjectProfileWriter(10, BackpressurePolicy.BLOCK, 1);
+        writer.start();
+        for (int i = 0; i < 3; i++) {
+            writer.submit(createRecord(i));
+        }
+        writer.shutdown();
+        assertEquals(3, writer.getWrittenInvocations());
+        assertEquals(List.of("<int>0</int>", "<int>1</int>", "<int>2</int>"),
+                Files.readAllLines(tempDir.resolve("receiving.xml")));
+        assertEquals("<string>a</string>", Files.readAllLines(tempDir.resolve("returned.xml")).get(0));
+        List<String> sizes = Files.readAllLines(tempDir.resolve("sizes.txt"));
+        assertEquals(3, sizes.size());
+        assertEquals(Files.size(tempDir.resolve("receiving.xml")) + Files.size(tempDir.resolve("returned.xml")),
+                sizes.stream().mapToLong(Long::parseLong).sum());
+        assertEquals(Files.size(tempDir.resolve("receiving.xml")),
+                sizeBudget.getBytesWritten(tempDir.resolve("receiving.xml").toString()));
+    }
+
+    // Test that invocations are dropped when the queue is full
+    @Test
+    public void testDropPolicy() throws Exception {
+        AsyncObjectProfileWriter writer = new AsyncObjectProfileWriter(2, BackpressurePolicy.DROP, 1);
+        for (int i = 0; i < 3; i++) {
+            if (writer.acceptsInvocation()) {
+                writer.submit(createRecord(i));
+            }
+        }
+        assertEquals(1, writer.getDroppedInvocations());
+        writer.start();
+        writer.shutdown();
+        assertEquals(2, writer.getWrittenInvocations());
+        assertEquals(2, Files.readAllLines(tempDir.resolve("receiving.xml")).size());
+    }
+
+    // Test that only one in N invocations is accepted once the queue is half full
+    @Test
+    public void testSamplePolicy() {
+        AsyncObjectProfileWriter writer = new AsyncObjectProfileWriter(4, BackpressurePolicy.SAMPLE, 2);
+        assertTrue(writer.acceptsInvocation());
+        writer.submit(createRecord(0));
+        assertTrue(writer.acceptsInvocation());
+        writer.submit(createRecord(1));
+        assertFalse(writer.acceptsInvocation());
+        assertTrue(writer.acceptsInvocation());
+        assertEquals(1, writer.getDroppedInvocations());
+    }
+
+    // Test that files closed to stay under the open file limit are reopened and appended to
+    @Test
+    public void testFileSinkBoundsOpenFiles() throws Exception {
+        FileObjectProfileSink sink = new FileObjectProfileSink(2);
+        for (int i = 0; i < 3; i++) {
+            sink.write(createRecord(i));
+        }
+        sink.close();
+        assertEquals(List.of("<int>0</int>", "<int>1</int>", "<int>2</int>"),
+                Files.readAllLines(tempDir.resolve("receiving.xml")));
+        assertEquals(3, Files.readAllLines(tempDir.resolve("returned.xml")).size());
+        assertEquals(3, Files.readAllLines(tempDir.resolve("sizes.txt")).size());
+    }
+}
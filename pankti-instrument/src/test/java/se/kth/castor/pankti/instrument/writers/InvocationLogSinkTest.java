@@ -0,0 +1,75 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvocationLogSinkTest {
+    @TempDir
+    Path tempDir;
+
+    private final ObjectProfileSizeBudget sizeBudget = new ObjectProfileSizeBudget(List.of(), 0, new GlobalSizeBudget(0));
+
+    private ObjectProfileRecord createRecord(String methodFQN, int i) {
+        ObjectProfileRecord record = new ObjectProfileRecord(methodFQN, "1.1." + i, methodFQN + "-object-profile-sizes.txt", sizeBudget);
+        record.addEncodedObject(tempDir.resolve(methodFQN + "-receiving.xml").toString(), ("<int>" + i + "</int>\n").getBytes());
+        record.addEncodedObject(tempDir.resolve(methodFQN + "-returned.xml").toString(), "<string>a</string>\n".getBytes());
+        return record;
+    }
+
+    // Test that records of all methods go to one log, and that the index points at every record
+    @Test
+    public void testRecordsAreIndexed() throws Exception {
+        AsyncObjectProfileWriter writer = new AsyncObjectProfileWriter(10, BackpressurePolicy.BLOCK, 1,
+                new InvocationLogSink(tempDir + "/", "invocations", 0));
+        writer.start();
+        writer.submit(createRecord("a.B.m", 0));
+        writer.submit(createRecord("a.B.n_int", 1));
+        writer.shutdown();
+
+        List<String> index = Files.readAllLines(tempDir.resolve("invocations-0.idx"));
+        assertEquals(2, index.size());
+        String[] secondEntry = index.get(1).split("\t");
+        assertEquals("a.B.n_int-receiving.xml", secondEntry[3]);
+        assertEquals("a.B.n_int-returned.xml", secondEntry[4]);
+        assertFalse(Files.exists(tempDir.resolve("a.B.m-receiving.xml")));
+
+        try (RandomAccessFile segment = new RandomAccessFile(tempDir.resolve("invocations-0.log").toFile(), "r")) {
+            segment.seek(Long.parseLong(secondEntry[0]));
+            assertEquals(Integer.parseInt(secondEntry[1]), segment.readInt());
+            assertEquals("a.B.n_int", segment.readUTF());
+            assertEquals(secondEntry[2], segment.readUTF());
+            assertEquals(Thread.currentThread().getName(), segment.readUTF());
+            assertEquals(2, segment.readShort());
+            assertEquals("a.B.n_int-receiving.xml", segment.readUTF());
+            byte[] receivingObject = new byte[segment.readInt()];
+            segment.readFully(receivingObject);
+            assertEquals("<int>1</int>\n", new String(receivingObject));
+        }
+        assertEquals(13, sizeBudget.getBytesWritten(tempDir.resolve("a.B.n_int-receiving.xml").toString()));
+    }
+
+    // Test that a new segment is started once the current one is full
+    @Test
+    public void testSegmentRotation() throws Exception {
+        InvocationLogSink sink = new InvocationLogSink(tempDir + "/", "invocations", 300);
+        for (int i = 0; i < 3; i++) {
+            sink.write(createRecord("a.B.m", i));
+        }
+        sink.close();
+        assertTrue(Files.size(tempDir.resolve("invocations-0.log")) <= 300);
+        assertTrue(Files.exists(tempDir.resolve("invocations-1.log")));
+        long records = 0;
+        for (int segment = 0; Files.exists(tempDir.resolve("invocations-" + segment + ".idx")); segment++) {
+            records += Files.readAllLines(tempDir.resolve("invocations-" + segment + ".idx")).size();
+        }
+        assertEquals(3, records);
+    }
+}
@@ -0,0 +1,46 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvokedMethodsRegistryTest {
+    @TempDir
+    Path tempDir;
+
+    // Test that rows already in the file are not appended again, and new rows are appended once
+    @Test
+    public void testRowsAreAppendedOnce() throws Exception {
+        Path csvFile = tempDir.resolve("invoked-methods.csv");
+        Files.writeString(csvFile, "visibility,parent-FQN\npublic,a.b.C");
+        InvokedMethodsRegistry registry = new InvokedMethodsRegistry(csvFile);
+
+        assertTrue(registry.contains("public,a.b.C"));
+        assertFalse(registry.register("public,a.b.C"));
+        IntStream.range(0, 100).parallel().forEach(i -> registry.register("public,a.b.D"));
+
+        assertEquals(List.of("visibility,parent-FQN", "public,a.b.C", "public,a.b.D"), Files.readAllLines(csvFile));
+    }
+
+    // Test that deferred rows create no file until they are flushed, with the header first
+    @Test
+    public void testDeferredRowsAreWrittenOnFlush() throws Exception {
+        Path csvFile = tempDir.resolve("dump").resolve("invoked-methods.csv");
+        InvokedMethodsRegistry registry = new InvokedMethodsRegistry(csvFile, true);
+
+        assertTrue(registry.register("public,a.b.C"));
+        assertFalse(registry.register("public,a.b.C"));
+        assertFalse(Files.exists(csvFile.getParent()));
+
+        registry.flush();
+        List<String> lines = Files.readAllLines(csvFile);
+        assertTrue(lines.get(0).startsWith("visibility,parent-FQN,"));
+        assertEquals(List.of("public,a.b.C"), lines.subList(1, lines.size()));
+    }
+}
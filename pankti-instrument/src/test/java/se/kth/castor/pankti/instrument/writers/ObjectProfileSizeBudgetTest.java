@@ -0,0 +1,54 @@
+package se.kth.castor.pankti.instrument.writers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObjectProfileSizeBudgetTest {
+    @TempDir
+    Path tempDir;
+
+    // Test that the budget is exceeded once one of the object files reaches the limit
+    @Test
+    public void testBudgetPerFile() {
+        String receivingFile = tempDir.resolve("receiving.xml").toString();
+        String paramsFile = tempDir.resolve("params.xml").toString();
+        ObjectProfileSizeBudget budget = new ObjectProfileSizeBudget(
+                List.of(receivingFile, paramsFile), 100, new GlobalSizeBudget(0));
+        budget.recordBytesWritten(receivingFile, 60);
+        budget.recordBytesWritten(paramsFile, 60);
+        assertTrue(budget.isWithinBudget());
+        budget.recordBytesWritten(receivingFile, 40);
+        assertFalse(budget.isWithinBudget());
+        assertEquals(100, budget.getBytesWritten(receivingFile));
+    }
+
+    // Test that existing files count against the budget, and that all methods share the global budget
+    @Test
+    public void testExistingFilesAndGlobalBudget() throws Exception {
+        Path existingFile = tempDir.resolve("existing.xml");
+        Files.writeString(existingFile, "<int>1</int>\n");
+        GlobalSizeBudget globalBudget = new GlobalSizeBudget(30);
+        ObjectProfileSizeBudget budget1 = new ObjectProfileSizeBudget(List.of(existingFile.toString()), 0, globalBudget);
+        ObjectProfileSizeBudget budget2 = new ObjectProfileSizeBudget(List.of(), 0, globalBudget);
+        assertEquals(13, budget1.getBytesWritten(existingFile.toString()));
+        assertTrue(budget2.isWithinBudget());
+        budget2.recordBytesWritten(tempDir.resolve("other.xml").toString(), 17);
+        assertFalse(budget1.isWithinBudget());
+        assertFalse(budget2.isWithinBudget());
+        assertEquals(30, globalBudget.getBytesWritten());
+    }
+
+    @Test
+    public void testUtf8Length() {
+        assertEquals(3, ObjectProfileSizeBudget.utf8Length("abc"));
+        assertEquals(2, ObjectProfileSizeBudget.utf8Length("é"));
+        assertEquals(3, ObjectProfileSizeBudget.utf8Length("€"));
+        assertEquals(4, ObjectProfileSizeBudget.utf8Length("😀"));
+    }
+}